@@ -27,6 +27,11 @@ public class BetweennessCentrality extends Centrality {
 	public String getName() {
 		return "betweenness";
 	}
+	
+	@Override
+	public Centrality copy() {
+		return new BetweennessCentrality(spProducer);
+	}
 
 	@Override
 	protected void recountCentrality() {
@@ -1,12 +1,14 @@
 package hidingsrc.centrality;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import hidingsrc.core.Edge;
 import hidingsrc.core.Graph;
 import hidingsrc.core.GraphChangeListener;
 import hidingsrc.core.Ranking;
+import hidingsrc.core.SubgraphView;
 
 /**
  * Centrality measure on a graph.
@@ -25,6 +27,11 @@ public abstract class Centrality implements GraphChangeListener{
 
 	public abstract String getName();
 	
+	/**
+	 * New instance of the same measure, with no values computed.
+	 */
+	public abstract Centrality copy();
+	
 	public Double getCentrality(int v, Graph g){
 		prepare(g);
 		return values.get(v);
@@ -44,6 +51,14 @@ public abstract class Centrality implements GraphChangeListener{
 	 */
 	public abstract double computeSingleCentrality(int v, Graph g); 
 	
+	/**
+	 * Object following the centrality in the subgraph of g given by the view, as nodes are added to it or removed
+	 * from it, without recounting all values; null if the measure does not support it.
+	 */
+	public OnlineCentrality online(Graph g, SubgraphView view) {
+		return null;
+	}
+	
 	public Ranking<Integer> getRanking(Graph g){
 		prepare(g);
 		return new Ranking<>(values);
@@ -78,6 +93,11 @@ public abstract class Centrality implements GraphChangeListener{
 		reactNotify();
 	}
 
+	@Override
+	public void notifyBatch(Graph g, List<Edge> added, List<Edge> removed) {
+		reactNotify();
+	}
+
 	private void reactNotify(){
 		values = null;
 	}
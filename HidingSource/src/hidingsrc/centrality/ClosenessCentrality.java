@@ -2,8 +2,11 @@ package hidingsrc.centrality;
 
 import java.util.function.Function;
 
+import hidingsrc.core.CompactSubgraph;
 import hidingsrc.core.Graph;
+import hidingsrc.core.OnlineDistances;
 import hidingsrc.core.ShortestPaths;
+import hidingsrc.core.SubgraphView;
 
 /**
  * Closeness centrality measure - average distance to other nodes.
@@ -13,22 +16,35 @@ import hidingsrc.core.ShortestPaths;
 public class ClosenessCentrality extends Centrality {
 
 	private Function<Graph,ShortestPaths> spProducer;
+	private boolean unweighted;
 	
 	public ClosenessCentrality(Function<Graph, ShortestPaths> spProducer) {
 		this.spProducer = spProducer;
+		this.unweighted = false;
 	}
 	
+	/**
+	 * Unweighted distances; on a subgraph view they are taken from its BFS trees.
+	 */
 	public ClosenessCentrality() {
 		this(g -> g.sp());
+		this.unweighted = true;
 	}
 
 	@Override
 	public String getName() {
 		return "closeness";
 	}
+	
+	@Override
+	public Centrality copy() {
+		return unweighted ? new ClosenessCentrality() : new ClosenessCentrality(spProducer);
+	}
 
 	@Override
 	public double computeSingleCentrality(int v, Graph g) {
+		if (unweighted && g instanceof SubgraphView)
+			return computeFromTree(((SubgraphView) g).getCompact().getBfsTree(v), g);
 		ShortestPaths sp = spProducer.apply(g);
 		if (g.isDirected()){
 			double sum = 0.;
@@ -48,4 +64,54 @@ public class ClosenessCentrality extends Centrality {
 			return splSum == 0. ? 0. : (double)(g.size() - 1) / splSum;
 		}
 	}
+	
+	private double computeFromTree(CompactSubgraph.BfsTree tree, Graph g) {
+		int[] order = tree.getOrder();
+		if (g.isDirected()){
+			double sum = 0.;
+			for (int k = 1; k < order.length; ++k)
+				sum += 1. / tree.getDepth(order[k]);
+			return sum / (g.size() - 1);
+		} else {
+			double splSum = (double)(g.size() - order.length) * (g.size() - 1);
+			for (int k = 1; k < order.length; ++k)
+				splSum += tree.getDepth(order[k]);
+			return splSum == 0. ? 0. : (double)(g.size() - 1) / splSum;
+		}
+	}
+	
+	/**
+	 * Follows the group with a matrix of distances, updated in O(k^2) per added node. A node can be removed only
+	 * if no shortest path goes through it (see OnlineDistances.isRemovable).
+	 */
+	@Override
+	public OnlineCentrality online(Graph g, SubgraphView view) {
+		if (!unweighted)
+			return null;
+		OnlineDistances dist = new OnlineDistances(g, view.getCompact());
+		return new OnlineCentrality() {
+			
+			@Override
+			public boolean update(int v, boolean added) {
+				if (added)
+					dist.add(v);
+				else if (dist.isRemovable(v))
+					dist.remove(v);
+				else
+					return false;
+				return true;
+			}
+			
+			@Override
+			public double getValue(int v) {
+				int n = dist.size();
+				if (g.isDirected())
+					return dist.getInverseDistanceSum(v) / (n - 1);
+				else {
+					double splSum = dist.getDistanceSum(v) + (double)dist.getUnreachableCount(v) * (n - 1);
+					return splSum == 0. ? 0. : (double)(n - 1) / splSum;
+				}
+			}
+		};
+	}
 }
@@ -1,6 +1,10 @@
 package hidingsrc.centrality;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import hidingsrc.core.Graph;
+import hidingsrc.core.SubgraphView;
 
 /**
  * Degree centrality measure - number of neighbours.
@@ -13,6 +17,11 @@ public class DegreeCentrality extends Centrality {
 	public String getName() {
 		return "degree";
 	}
+	
+	@Override
+	public Centrality copy() {
+		return new DegreeCentrality();
+	}
 
 	@Override
 	public double computeSingleCentrality(int v, Graph g) {
@@ -21,4 +30,44 @@ public class DegreeCentrality extends Centrality {
 		else
 			return (double)g.getDegree(v) / (g.size() - 1);
 	}
+
+	/**
+	 * Adding or removing a node changes only the degrees of its neighbours in the group (and the normalization).
+	 */
+	@Override
+	public OnlineCentrality online(Graph g, SubgraphView view) {
+		Map<Integer,Integer> degrees = new HashMap<>();
+		for (int k : view.nodes())
+			degrees.put(view.getOriginal(k), view.getDegree(k));
+		return new OnlineCentrality() {
+			
+			@Override
+			public boolean update(int v, boolean added) {
+				int delta = added ? 1 : -1;
+				int deg = 0;
+				for (int w : g.getSuccs(v))
+					if (degrees.containsKey(w)) {
+						degrees.merge(w, delta, Integer::sum);
+						++deg;
+					}
+				if (g.isDirected())
+					for (int w : g.getPreds(v))
+						if (degrees.containsKey(w)) {
+							degrees.merge(w, delta, Integer::sum);
+							++deg;
+						}
+				if (added)
+					degrees.put(v, deg);
+				else
+					degrees.remove(v);
+				return true;
+			}
+			
+			@Override
+			public double getValue(int v) {
+				int n = degrees.size();
+				return (double)degrees.get(v) / ((g.isDirected() ? 2. : 1.) * (n - 1));
+			}
+		};
+	}
 }
@@ -19,6 +19,11 @@ public class EigenvectorCentrality extends Centrality {
 	public String getName() {
 		return "eigenvector";
 	}
+	
+	@Override
+	public Centrality copy() {
+		return new EigenvectorCentrality(precision);
+	}
 
 	@Override
 	protected void recountCentrality() {
@@ -0,0 +1,21 @@
+package hidingsrc.centrality;
+
+/**
+ * Values of a centrality measure in the subgraph induced by a group of nodes, following the group as it grows
+ * or shrinks one node at a time (see Centrality.online).
+ *
+ * @author Marcin Waniek
+ */
+public interface OnlineCentrality {
+
+	/**
+	 * Updates the values after node v was added to the group (or removed from it). Returns false if this change
+	 * cannot be followed, in which case the object cannot be used any more.
+	 */
+	public boolean update(int v, boolean added);
+
+	/**
+	 * Value of node v of the group, identified as in the original graph.
+	 */
+	public double getValue(int v);
+}
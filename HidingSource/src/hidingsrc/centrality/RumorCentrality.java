@@ -1,9 +1,14 @@
 package hidingsrc.centrality;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Stack;
 
 import hidingsrc.core.BreadthFirstSearch;
+import hidingsrc.core.CompactSubgraph;
 import hidingsrc.core.Graph;
+import hidingsrc.core.SubgraphView;
 import hidingsrc.utils.Ref;
 
 /**
@@ -28,8 +33,16 @@ public class RumorCentrality extends Centrality {
 	public String getName() {
 		return "rumor";
 	}
+	
+	@Override
+	public Centrality copy() {
+		return new RumorCentrality();
+	}
+	
 	@Override
 	public double computeSingleCentrality(int v, Graph g) {
+		if (g instanceof SubgraphView)
+			return computeFromTree(((SubgraphView) g).getCompact().getBfsTree(v), g.size());
 		Ref<Double> res = new Ref<>();
 		new BreadthFirstSearch() {
 			Stack<Integer> reverseOrder = new Stack<>();
@@ -56,4 +69,153 @@ public class RumorCentrality extends Centrality {
 		}.runSearch(g, v);
 		return res.get();
 	}
+	
+	/**
+	 * Same computation based on a BFS tree of the subgraph.
+	 */
+	private double computeFromTree(CompactSubgraph.BfsTree tree, int n) {
+		int[] subtreeSize = getSubtreeSizes(tree, n);
+		double acc = 1.;
+		for (int i = 0; i < n; ++i)
+			acc = acc * (i+1) / subtreeSize[i];
+		return acc;
+	}
+	
+	private int[] getSubtreeSizes(CompactSubgraph.BfsTree tree, int n) {
+		int[] order = tree.getOrder();
+		int[] subtreeSize = new int[n];
+		for (int k = order.length - 1; k >= 0; --k) {
+			int i = order[k];
+			subtreeSize[i] += 1;
+			if (tree.getParent(i) >= 0)
+				subtreeSize[tree.getParent(i)] += subtreeSize[i];
+		}
+		return subtreeSize;
+	}
+	
+	/**
+	 * Keeps the BFS tree of every root with its subtree sizes. A node with a single neighbour in the group is
+	 * a leaf of every tree, so adding it (or removing it) changes only the subtree sizes on the path from
+	 * the root to its neighbour, and the value of every root is updated in time proportional to the depth
+	 * of that path. Nodes with more neighbours in the group may change the trees, and are not followed.
+	 * Only undirected graphs are supported.
+	 */
+	@Override
+	public OnlineCentrality online(Graph g, SubgraphView view) {
+		return g.isDirected() ? null : new OnlineRumor(g, view);
+	}
+	
+	private class OnlineRumor implements OnlineCentrality {
+		
+		private Graph g;
+		private Map<Integer,Integer> slots;
+		private int[][] parent;
+		private int[][] subtreeSize;
+		private double[] value;
+		private int used;
+		
+		public OnlineRumor(Graph g, SubgraphView view) {
+			int n = view.size();
+			CompactSubgraph sub = view.getCompact();
+			this.g = g;
+			this.slots = new HashMap<>();
+			this.parent = new int[Math.max(n, 1)][];
+			this.subtreeSize = new int[parent.length][];
+			this.value = new double[parent.length];
+			this.used = n;
+			for (int a = 0; a < n; ++a) {
+				slots.put(sub.node(a), a);
+				CompactSubgraph.BfsTree tree = sub.getBfsTree(a);
+				parent[a] = new int[parent.length];
+				for (int b = 0; b < n; ++b)
+					parent[a][b] = tree.getParent(b);
+				subtreeSize[a] = Arrays.copyOf(getSubtreeSizes(tree, n), parent.length);
+				value[a] = computeFromTree(tree, n);
+			}
+		}
+
+		@Override
+		public boolean update(int v, boolean added) {
+			int p = -1;
+			for (int w : g.getSuccs(v))
+				if (slots.containsKey(w) && w != v) {
+					if (p >= 0)
+						return false;
+					p = slots.get(w);
+				}
+			if (p < 0)
+				return false;
+			int n = slots.size();
+			if (added) {
+				int s = allocate(v);
+				parent[s] = Arrays.copyOf(parent[p], parent.length);
+				subtreeSize[s] = Arrays.copyOf(subtreeSize[p], parent.length);
+				value[s] = value[p];
+				for (int r : slots.values())
+					if (r != s && r != p && parent[r][p] < 0) {
+						parent[r][s] = -1;
+						subtreeSize[r][s] = 0;
+						value[r] = Double.POSITIVE_INFINITY;
+					} else if (r != s) {
+						parent[r][s] = p;
+						subtreeSize[r][s] = 1;
+						value[r] *= n + 1;
+						for (int u = p; u >= 0; u = parent[r][u]) {
+							value[r] = value[r] * subtreeSize[r][u] / (subtreeSize[r][u] + 1);
+							++subtreeSize[r][u];
+						}
+					}
+				parent[s][s] = -1;
+				parent[s][p] = s;
+				subtreeSize[s][s] = n + 1;
+			} else {
+				for (int r : slots.values())
+					if (r != p && parent[r][p] < 0)
+						return false;
+				int s = slots.remove(v);
+				parent[s] = null;
+				subtreeSize[s] = null;
+				for (int r : slots.values()) {
+					value[r] /= n;
+					for (int u = p; u >= 0; u = parent[r][u]) {
+						value[r] = value[r] * subtreeSize[r][u] / (subtreeSize[r][u] - 1);
+						--subtreeSize[r][u];
+					}
+					parent[r][s] = -1;
+					subtreeSize[r][s] = 0;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public double getValue(int v) {
+			return value[slots.get(v)];
+		}
+		
+		private int allocate(int v) {
+			int s = used;
+			for (int a = 0; a < used; ++a)
+				if (parent[a] == null) {
+					s = a;
+					break;
+				}
+			if (s == used) {
+				if (used == parent.length) {
+					int capacity = 2 * parent.length;
+					parent = Arrays.copyOf(parent, capacity);
+					subtreeSize = Arrays.copyOf(subtreeSize, capacity);
+					value = Arrays.copyOf(value, capacity);
+					for (int a = 0; a < used; ++a)
+						if (parent[a] != null) {
+							parent[a] = Arrays.copyOf(parent[a], capacity);
+							subtreeSize[a] = Arrays.copyOf(subtreeSize[a], capacity);
+						}
+				}
+				++used;
+			}
+			slots.put(v, s);
+			return s;
+		}
+	}
 }
@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -20,18 +21,24 @@ import hidingsrc.utils.Utils;
 /**
  * Representation of a coalition - a group of nodes.
  * 
+ * Every change made through the methods of the coalition increases its version, so that an unchanged coalition
+ * can be recognized in O(1) (changes made directly through getNodes() or iterator() are not counted).
+ * 
  * @author Marcin Waniek
  */
 public class Coalition implements Iterable<Integer> {
 		
 	private HashSet<Integer> nodes;
+	private long version;
 	
 	public Coalition() {
 		this.nodes = new HashSet<>();
+		this.version = 0;
 	}
 	
 	public Coalition(Collection<Integer> col) {
 		this.nodes = new HashSet<>(col);
+		this.version = 0;
 	}
 	
 	public Coalition(Integer[] arr) {
@@ -42,6 +49,7 @@ public class Coalition implements Iterable<Integer> {
 
 	public Coalition(Coalition c) {
 		this.nodes = new HashSet<>(c.nodes);
+		this.version = 0;
 	}
 	
 	public Coalition(int... nodes) {
@@ -50,6 +58,15 @@ public class Coalition implements Iterable<Integer> {
 			this.add(i);
 	}
 	
+	/**
+	 * Empty coalition that can take the given number of nodes without rehashing.
+	 */
+	public static Coalition withCapacity(int size){
+		Coalition res = new Coalition();
+		res.nodes = new HashSet<>(size * 4 / 3 + 1);
+		return res;
+	}
+	
 	public static Coalition getFull(int n){
 		Coalition res = new Coalition();
 		for (int i = 0; i < n; ++i)
@@ -64,6 +81,10 @@ public class Coalition implements Iterable<Integer> {
 	public boolean isEmpty(){
 		return nodes.isEmpty();
 	}
+	
+	public long getVersion() {
+		return version;
+	}
 
 	public HashSet<Integer> getNodes() {
 		return nodes;
@@ -98,13 +119,21 @@ public class Coalition implements Iterable<Integer> {
 	}
 	
 	public Integer getRandom(){
-		return isEmpty() ? null : stream().skip(Utils.RAND.nextInt(size())).findFirst().getAsInt();
+		return getRandom(Utils.rand());
+	}
+	
+	public Integer getRandom(SplittableRandom rand){
+		return isEmpty() ? null : stream().skip(rand.nextInt(size())).findFirst().getAsInt();
 	}
 	
 	public Coalition getRandom(int k){
+		return getRandom(k, Utils.rand());
+	}
+	
+	public Coalition getRandom(int k, SplittableRandom rand){
 		Coalition res = new Coalition();
 		for (int t = 0; t < Math.min(k, size()); ++t)
-			res.add(stream().filter(i -> !res.contains(i)).skip(Utils.RAND.nextInt(size() - res.size()))
+			res.add(stream().filter(i -> !res.contains(i)).skip(rand.nextInt(size() - res.size()))
 					.findFirst().getAsInt());
 		return res;
 	}
@@ -117,20 +146,24 @@ public class Coalition implements Iterable<Integer> {
 
 	public void clear() {
 		nodes.clear();
+		++version;
 	}
 	
 	public Coalition add(int i){
-		nodes.add(i);
+		if (nodes.add(i))
+			++version;
 		return this;
 	}
 
 	public Coalition add(Coalition c){
-		nodes.addAll(c.nodes);
+		if (nodes.addAll(c.nodes))
+			++version;
 		return this;
 	}
 	
 	public Coalition addAll(Collection<Integer> ii){
-		nodes.addAll(ii);
+		if (nodes.addAll(ii))
+			++version;
 		return this;
 	}
 
@@ -148,17 +181,20 @@ public class Coalition implements Iterable<Integer> {
 	}
 
 	public Coalition remove(int i){
-		nodes.remove(i);
+		if (nodes.remove(i))
+			++version;
 		return this;
 	}
 
 	public Coalition remove(Coalition c){
-		nodes.removeAll(c.nodes);
+		if (nodes.removeAll(c.nodes))
+			++version;
 		return this;
 	}
 	
 	public Coalition removeAll(Collection<Integer> ii){
-		nodes.removeAll(ii);
+		if (nodes.removeAll(ii))
+			++version;
 		return this;
 	}
 
@@ -179,7 +215,11 @@ public class Coalition implements Iterable<Integer> {
 	}
 	
 	public int removeRandom() {
-		int i = getRandom();
+		return removeRandom(Utils.rand());
+	}
+	
+	public int removeRandom(SplittableRandom rand) {
+		int i = getRandom(rand);
 		remove(i);
 		return i;
 	}
@@ -191,8 +231,10 @@ public class Coalition implements Iterable<Integer> {
 	public Coalition filter(Predicate<Integer> p) {
 		for (Iterator<Integer> iter = nodes.iterator(); iter.hasNext();){
 			int i = iter.next();
-			if (!p.test(i))
+			if (!p.test(i)) {
 				iter.remove();
+				++version;
+			}
 		}
 		return this;
 	}
@@ -233,9 +275,13 @@ public class Coalition implements Iterable<Integer> {
 	}
 	
 	public static Coalition getRandom(int k, int n){
+		return getRandom(k, n, Utils.rand());
+	}
+	
+	public static Coalition getRandom(int k, int n, SplittableRandom rand){
 		Coalition res = new Coalition();
 		for (int t = 0; t < k; ++t)
-			res.add(IntStream.range(0, n).filter(i -> !res.contains(i)).skip(Utils.RAND.nextInt(n - t))
+			res.add(IntStream.range(0, n).filter(i -> !res.contains(i)).skip(rand.nextInt(n - t))
 					.findFirst().getAsInt());
 		return res;
 	}
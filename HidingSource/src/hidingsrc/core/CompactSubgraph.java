@@ -0,0 +1,224 @@
+package hidingsrc.core;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable subgraph induced by a group of nodes, with nodes relabelled to 0..size()-1 and edges stored
+ * in the CSR format (neighbours in increasing order), for algorithms that repeatedly traverse it.
+ * BFS trees are computed on demand and not kept (each takes O(size()) memory), but the eccentricity and
+ * the number of reached nodes of every root are, so that they can be shared by many algorithms.
+ * 
+ * @author Marcin Waniek
+ */
+public class CompactSubgraph {
+
+	private int[] nodes;
+	private int[] index;
+	private int[] succOffsets;
+	private int[] succTargets;
+	private int[] predOffsets;
+	private int[] predTargets;
+	private int[] eccentricity;
+	private int[] reached;
+	
+	public CompactSubgraph(Graph g, Coalition c) {
+		this(g, c.stream().toArray());
+	}
+	
+	/**
+	 * Compact copy of the whole graph, in which nodes keep their numbers.
+	 */
+	public CompactSubgraph(Graph g) {
+		this(g, IntStream.range(0, g.size()).toArray());
+	}
+	
+	/**
+	 * Subgraph induced by the given (distinct) nodes, numbered in their order in the array.
+	 */
+	public CompactSubgraph(Graph g, int[] nodes) {
+		this.nodes = nodes;
+		this.index = new int[g.size()];
+		Arrays.fill(index, -1);
+		for (int k = 0; k < nodes.length; ++k)
+			index[nodes[k]] = k;
+		this.succOffsets = new int[nodes.length + 1];
+		this.succTargets = induce(g, false, succOffsets);
+		if (g.isDirected()) {
+			this.predOffsets = new int[nodes.length + 1];
+			this.predTargets = induce(g, true, predOffsets);
+		} else {
+			this.predOffsets = succOffsets;
+			this.predTargets = succTargets;
+		}
+		this.eccentricity = new int[nodes.length];
+		this.reached = new int[nodes.length];
+		Arrays.fill(eccentricity, -1);
+	}
+	
+	private int[] induce(Graph g, boolean reversed, int[] offsets) {
+		int[] targets = new int[16];
+		int size = 0;
+		for (int k = 0; k < nodes.length; ++k) {
+			for (int j : reversed ? g.getPreds(nodes[k]) : g.getSuccs(nodes[k]))
+				if (index[j] >= 0) {
+					if (size == targets.length)
+						targets = Arrays.copyOf(targets, 2 * size);
+					targets[size++] = index[j];
+				}
+			offsets[k + 1] = size;
+			Arrays.sort(targets, offsets[k], size);
+		}
+		return Arrays.copyOf(targets, size);
+	}
+	
+	public int size() {
+		return nodes.length;
+	}
+	
+	/**
+	 * Node of the original graph with given index.
+	 */
+	public int node(int k) {
+		return nodes[k];
+	}
+	
+	/**
+	 * Index of a node of the original graph, -1 if it does not belong to the subgraph.
+	 */
+	public int index(int v) {
+		return v < index.length ? index[v] : -1;
+	}
+	
+	public int[] getSuccOffsets() {
+		return succOffsets;
+	}
+	
+	public int[] getSuccTargets() {
+		return succTargets;
+	}
+	
+	public int[] getPredOffsets() {
+		return predOffsets;
+	}
+	
+	public int[] getPredTargets() {
+		return predTargets;
+	}
+	
+	/**
+	 * Whether all nodes are within maxDepth from node k, following successors. Answered from the eccentricity
+	 * of k if its BFS tree was already built, and with a search stopped at depth maxDepth otherwise.
+	 */
+	public boolean reachesAllWithin(int k, int maxDepth) {
+		int ecc = eccentricity[k];
+		int count = reached[k];
+		if (ecc >= 0 && count > 0)
+			return count == nodes.length && ecc <= maxDepth;
+		return countWithin(k, maxDepth) == nodes.length;
+	}
+	
+	/**
+	 * Number of nodes at distance at most maxDepth from node k (including k), following successors. The search
+	 * stops at depth maxDepth.
+	 */
+	public int countWithin(int k, int maxDepth) {
+		int[] queue = new int[nodes.length];
+		int[] depth = new int[nodes.length];
+		Arrays.fill(depth, -1);
+		queue[0] = k;
+		depth[k] = 0;
+		int head = 0;
+		int tail = 1;
+		while (head < tail) {
+			int i = queue[head++];
+			if (depth[i] < maxDepth)
+				for (int e = succOffsets[i]; e < succOffsets[i + 1]; ++e) {
+					int j = succTargets[e];
+					if (depth[j] < 0) {
+						depth[j] = depth[i] + 1;
+						queue[tail++] = j;
+					}
+				}
+		}
+		return tail;
+	}
+	
+	/**
+	 * BFS tree rooted in node k, following successors. Its eccentricity and number of reached nodes are recorded;
+	 * both are single ints written with the same values by any thread, so concurrent searches are safe.
+	 */
+	public BfsTree getBfsTree(int k) {
+		BfsTree res = new BfsTree(k);
+		reached[k] = res.reachedCount();
+		eccentricity[k] = res.getEccentricity();
+		return res;
+	}
+	
+	/**
+	 * Tree of a breadth first search: visited nodes in the order of visiting, their parents and depths.
+	 */
+	public class BfsTree {
+		
+		private final int[] order;
+		private final int[] parent;
+		private final int[] depth;
+		
+		private BfsTree(int root) {
+			int[] queue = new int[nodes.length];
+			this.parent = new int[nodes.length];
+			this.depth = new int[nodes.length];
+			Arrays.fill(parent, -1);
+			Arrays.fill(depth, -1);
+			queue[0] = root;
+			depth[root] = 0;
+			int head = 0;
+			int tail = 1;
+			while (head < tail) {
+				int i = queue[head++];
+				for (int e = succOffsets[i]; e < succOffsets[i + 1]; ++e) {
+					int j = succTargets[e];
+					if (depth[j] < 0) {
+						depth[j] = depth[i] + 1;
+						parent[j] = i;
+						queue[tail++] = j;
+					}
+				}
+			}
+			this.order = Arrays.copyOf(queue, tail);
+		}
+		
+		public int getRoot() {
+			return order[0];
+		}
+		
+		/**
+		 * Reached nodes in the order of visiting.
+		 */
+		public int[] getOrder() {
+			return order;
+		}
+		
+		/**
+		 * Parent of a node in the tree, -1 for the root and unreached nodes.
+		 */
+		public int getParent(int k) {
+			return parent[k];
+		}
+		
+		/**
+		 * Distance from the root, -1 for unreached nodes.
+		 */
+		public int getDepth(int k) {
+			return depth[k];
+		}
+		
+		public int reachedCount() {
+			return order.length;
+		}
+		
+		public int getEccentricity() {
+			return depth[order[order.length - 1]];
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package hidingsrc.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Stack;
+import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.IntPredicate;
@@ -12,31 +15,55 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import hidingsrc.utils.Utils;
+
 /**
  * Representation of a graph.
  * 
+ * The history of changes is kept as an array of primitive entries, each encoding the type of a change and its
+ * two nodes. Marks set in the history (see mark) allow to undo all changes made since a given moment.
+ * 
+ * Changes made during a batch (see beginBatch) are passed to the listeners in a single notification at its end.
+ * 
  * @author Marcin Waniek
  */
 public class Graph {
 	
+	protected static final int CH_ADDITION = 0;
+	protected static final int CH_REMOVAL = 1;
+	protected static final int CH_OTHER = 2;
+	protected static final int CH_NODE = 3;
+	private static final long NODE_MASK = (1L << 31) - 1;
+	
 	private String name;
 	private int n;
 	private int m;
 	private boolean directed;
+	private long version;
 	
 	private ArrayList<Coalition> succs;
 	private ArrayList<Coalition> preds;
 	
-	private Stack<Change> history;
+	private long[] history;
+	private int historySize;
+	private int[] marks;
+	private int marksCount;
 	private ShortestPaths shortestPaths;
 	private Collection<GraphChangeListener> listeners;
+	private int batchDepth;
+	private Set<Edge> batchAdded;
+	private Set<Edge> batchRemoved;
 	
 	public Graph(String name, int n, boolean directed){
 		this.name = name;
 		this.n = n;
 		this.m = 0;
 		this.directed = directed;
+		this.version = 0;
 		this.history = null;
+		this.historySize = 0;
+		this.marks = null;
+		this.marksCount = 0;
 		
 		this.succs = new ArrayList<>();
 		for(int i = 0; i < n; ++i)
@@ -50,36 +77,87 @@ public class Graph {
 		
 		this.shortestPaths = null;
 		this.listeners = new ArrayList<>();
+		this.batchDepth = 0;
+		this.batchAdded = new LinkedHashSet<>();
+		this.batchRemoved = new LinkedHashSet<>();
 	}
 	
 	public Graph(String name, int n){
 		this(name, n, false);
 	}
 	
+	/**
+	 * Graph without its own adjacency sets, for subclasses that provide getSuccs() and getPreds() themselves.
+	 */
+	protected Graph(String name, int n, int m, boolean directed){
+		this.name = name;
+		this.n = n;
+		this.m = m;
+		this.directed = directed;
+		this.version = 0;
+		this.history = null;
+		this.historySize = 0;
+		this.marks = null;
+		this.marksCount = 0;
+		this.succs = null;
+		this.preds = null;
+		this.shortestPaths = null;
+		this.listeners = new ArrayList<>();
+		this.batchDepth = 0;
+		this.batchAdded = new LinkedHashSet<>();
+		this.batchRemoved = new LinkedHashSet<>();
+	}
+	
+	/**
+	 * Graph with the given sets of successors and predecessors (null for an undirected graph), which are used
+	 * without copying; m is the number of edges they contain.
+	 */
+	Graph(String name, ArrayList<Coalition> succs, ArrayList<Coalition> preds, int m, boolean directed){
+		this(name, succs.size(), m, directed);
+		this.succs = succs;
+		this.preds = preds;
+	}
+	
 	public Graph(Graph g){
 		this(g.name, g.n, g.directed);
+		copyEdges(g);
+	}
+	
+	/**
+	 * Adds all edges of g, which has at most as many nodes, to the graph without any edges.
+	 */
+	private void copyEdges(Graph g) {
 		for (int i : g.nodes())
-			for (Integer j : g.getSuccs(i))
-				addEdge(i, j);		
+			for (int j : g.getSuccs(i))
+				if (directed || i < j)
+					performAddEdge(i, j);
 	}
 
-	public void subscribe(GraphChangeListener listener){
+	public synchronized void subscribe(GraphChangeListener listener){
 		unsubscribe(listener);
 		listeners.add(listener);
 	}
 	
-	public void unsubscribe(GraphChangeListener listener){
+	public synchronized void unsubscribe(GraphChangeListener listener){
 		listeners.remove(listener);
 	}
 	
 	protected void notifyListenersAdd(Edge e){
-		for (GraphChangeListener listener : listeners)
-			listener.notifyAdd(this, e);
+		if (batchDepth > 0) {
+			if (!listeners.isEmpty())
+				batchAdded.add(e);
+		} else
+			for (GraphChangeListener listener : listeners)
+				listener.notifyAdd(this, e);
 	}
 	
 	protected void notifyListenersRemove(Edge e){
-		for (GraphChangeListener listener : listeners)
-			listener.notifyRemove(this, e);
+		if (batchDepth > 0) {
+			if (!listeners.isEmpty() && !batchAdded.remove(e))
+				batchRemoved.add(e);
+		} else
+			for (GraphChangeListener listener : listeners)
+				listener.notifyRemove(this, e);
 	}
 	
 	protected void notifyListenersOther(Edge e){
@@ -87,11 +165,65 @@ public class Graph {
 			listener.notifyOther(this, e);
 	}
 	
+	/**
+	 * Notifies the listeners about a node added or removed, after passing them the changes of the current
+	 * batch (when a node is removed, this has to be done before, so that they never learn about edges of
+	 * nodes that are already removed).
+	 */
+	protected void notifyListenersResize(){
+		flushBatch();
+		for (GraphChangeListener listener : listeners)
+			listener.notifyResize(this);
+	}
+	
 	protected void notifyListenersReset(){
 		for (GraphChangeListener listener : listeners)
 			listener.notifyReset(this);
 	}
 	
+	/**
+	 * Starts a batch of changes: until the matching endBatch() the listeners are not notified about added and
+	 * removed edges, so structures kept up to date by them may be out of date in the meantime. Batches can be
+	 * nested, only the outermost one notifies the listeners.
+	 */
+	public void beginBatch() {
+		++batchDepth;
+	}
+	
+	/**
+	 * Ends a batch of changes, notifying the listeners about the edges that were added and removed during
+	 * the outermost batch. An edge added and then removed is not reported at all. An edge removed and then added
+	 * again is reported as both removed and added, as the adjacency sets of its ends may iterate in a different
+	 * order afterwards.
+	 */
+	public void endBatch() {
+		if (--batchDepth == 0)
+			flushBatch();
+	}
+	
+	private void flushBatch() {
+		if (batchAdded.isEmpty() && batchRemoved.isEmpty())
+			return;
+		List<Edge> added = new ArrayList<>(batchAdded);
+		List<Edge> removed = new ArrayList<>(batchRemoved);
+		batchAdded.clear();
+		batchRemoved.clear();
+		for (GraphChangeListener listener : listeners)
+			listener.notifyBatch(this, added, removed);
+	}
+	
+	/**
+	 * Performs the changes as a single batch (see beginBatch).
+	 */
+	public void batch(Runnable changes) {
+		beginBatch();
+		try {
+			changes.run();
+		} finally {
+			endBatch();
+		}
+	}
+	
 	public String getName(){
 		return name;
 	}
@@ -119,6 +251,17 @@ public class Graph {
 		return directed;
 	}
 	
+	/**
+	 * Number increased by every change of the graph, so that cached results can be validated in O(1).
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	protected void incrementVersion() {
+		++version;
+	}
+	
 	public Edge e(int i, int j) {
 		return new Edge(i, j, directed);
 	}
@@ -126,8 +269,7 @@ public class Graph {
 	public boolean addEdge(int i, int j){
 		if (i != j && !containsEdge(i, j)){
 			performAddEdge(i, j);
-			if (history != null)
-				history.push(new Addition(i, j));
+			recordChange(CH_ADDITION, i, j);
 			notifyListenersAdd(new Edge(i, j, directed));
 			return true;
 		} else
@@ -141,8 +283,7 @@ public class Graph {
 	public boolean removeEdge(int i, int j){
 		if (i != j && containsEdge(i, j)){
 			performRemoveEdge(i, j);
-			if (history != null)
-				history.push(new Removal(i, j));
+			recordChange(CH_REMOVAL, i, j);
 			notifyListenersRemove(new Edge(i, j, directed));
 			return true;
 		} else
@@ -165,21 +306,55 @@ public class Graph {
 	}
 	
 	protected void performAddEdge(int i, int j){
-		succs.get(i).add(j);
+		getSuccsToChange(i).add(j);
 		if (directed)
-			preds.get(j).add(i);
+			getPredsToChange(j).add(i);
 		else
-			succs.get(j).add(i);
+			getSuccsToChange(j).add(i);
 		++m;
+		++version;
 	}
 	
 	protected void performRemoveEdge(int i, int j){
-		succs.get(i).remove(j);
+		getSuccsToChange(i).remove(j);
 		if (directed)
-			preds.get(j).remove(i);
+			getPredsToChange(j).remove(i);
 		else
-			succs.get(j).remove(i);
+			getSuccsToChange(j).remove(i);
 		--m;
+		++version;
+	}
+	
+	/**
+	 * Set of successors of node i that is about to be changed.
+	 */
+	protected Coalition getSuccsToChange(int i) {
+		return succs.get(i);
+	}
+	
+	/**
+	 * Set of predecessors of node i (in a directed graph) that is about to be changed.
+	 */
+	protected Coalition getPredsToChange(int i) {
+		return preds.get(i);
+	}
+	
+	/**
+	 * Creates the empty sets of neighbours of the new node v.
+	 */
+	protected void addNodeSets(int v) {
+		succs.add(new Coalition());
+		if (directed)
+			preds.add(new Coalition());
+	}
+	
+	/**
+	 * Discards the sets of neighbours of the removed node v.
+	 */
+	protected void removeNodeSets(int v) {
+		succs.remove(v);
+		if (directed)
+			preds.remove(v);
 	}
 	
 	public void disconnectNode(int i) {
@@ -198,10 +373,61 @@ public class Graph {
 		return containsEdge(e.i(), e.j());
 	}
 	
+	/**
+	 * Read-only copy of the current state of the graph, in which nodes keep their numbers. Unlike the graph
+	 * itself, it can be read by many threads at the same time while the graph is being changed.
+	 */
+	public SubgraphView snapshot() {
+		return new SubgraphView(new CompactSubgraph(this), name, directed);
+	}
+	
+	/**
+	 * Graph starting as this one, that can be changed without changing this one (see GraphFork).
+	 */
+	public GraphFork fork() {
+		return new GraphFork(this);
+	}
+	
+	/**
+	 * Adds a new node (with the next number) to the graph, returns its number. The addition is recorded in
+	 * the history, so it can be reverted together with the changes of edges.
+	 */
+	public int addNode() {
+		addNodeSets(n);
+		++n;
+		++version;
+		recordChange(CH_NODE, n - 1, 0);
+		notifyListenersResize();
+		return n - 1;
+	}
+	
+	/**
+	 * Makes room for nodes to be added, so that the graph can grow to n nodes without reallocation.
+	 */
+	public void ensureCapacity(int n) {
+		succs.ensureCapacity(n);
+		if (directed)
+			preds.ensureCapacity(n);
+	}
+	
+	/**
+	 * Removes the last node, which has no edges any more.
+	 */
+	protected void performRemoveNode() {
+		--n;
+		removeNodeSets(n);
+		++version;
+		notifyListenersResize();
+	}
+	
+	/**
+	 * Adds k new nodes (with the next numbers) to the graph in place, see addNode; returns the graph itself.
+	 */
 	public Graph addNodes(int k) {
-		Graph res = new Graph(name, n + k, directed);
-		edgesStream().forEach(e -> res.addEdge(e));
-		return res;
+		ensureCapacity(n + k);
+		for (int i = 0; i < k; ++i)
+			addNode();
+		return this;
 	}
 	
 	public Coalition getSuccs(int i){
@@ -219,7 +445,7 @@ public class Graph {
 		if (directed)
 			return Coalition.add(getSuccs(i), getPreds(i));
 		else
-			return succs.get(i);
+			return getSuccs(i);
 	}
 	
 	public int getOutDegree(int i){
@@ -264,50 +490,151 @@ public class Graph {
 		return StreamSupport.stream(edges().spliterator(), false);
 	}
 	
-	public ShortestPaths sp() {
+	/**
+	 * Shortest paths of the graph, created on the first call; safe to call from many threads.
+	 */
+	public synchronized ShortestPaths sp() {
 		if (shortestPaths == null)
 			shortestPaths = ShortestPaths.construct(this);
 		return shortestPaths;
 	}
 	
 	public void startRecordingHistory(){
-		history = new Stack<>();
+		history = new long[16];
+		historySize = 0;
+		marksCount = 0;
 	}
 	
 	public void stopRecordingHistory(){
 		history = null;
+		historySize = 0;
+		marksCount = 0;
 	}
 	
 	public boolean isRecordingHistory(){
 		return history != null;
 	}
 	
+	/**
+	 * Edge of the last change of an edge in the history, null if no edge was changed (or the history is not
+	 * recorded).
+	 */
 	public Edge getLastChange() {
-		return history.peek().getEdge();
+		int k = historySize - 1;
+		while (k >= 0 && (int)(history[k] >>> 62) == CH_NODE)
+			--k;
+		return k >= 0 ? changeEdge(history[k]) : null;
 	}
 	
+	/**
+	 * Edges of the changes of edges in the history (additions of nodes are skipped).
+	 */
 	public Stream<Edge> getChanges() {
-		return history.stream().map(c -> c.getEdge());
+		return IntStream.range(0, historySize).filter(k -> (int)(history[k] >>> 62) != CH_NODE)
+				.mapToObj(k -> changeEdge(history[k]));
 	}
 	
 	public void resetGraph(){
 		if (history != null){
-			while (!history.empty())
-				history.pop().revert();
+			revertTo(0);
+			marksCount = 0;
 			notifyListenersReset();
 		}
 	}
 	
 	public void revertChanges(int k){
-		if (history != null){
-			for (int i = 0; i < k; ++i)
-				if (!history.empty())
-					history.pop().revert();
-		}
+		if (history != null)
+			revertTo(Math.max(historySize - k, 0));
 	}
 	
 	public int historySize(){
-		return history == null ? 0 : history.size();
+		return historySize;
+	}
+	
+	/**
+	 * Sets a mark at the current end of the history (starting to record it if needed) and returns its number.
+	 * Marks can be nested, they are numbered from 0 in the order of setting.
+	 */
+	public int mark() {
+		if (history == null)
+			startRecordingHistory();
+		if (marks == null || marksCount == marks.length)
+			marks = marks == null ? new int[4] : Arrays.copyOf(marks, 2 * marksCount);
+		marks[marksCount] = historySize;
+		return marksCount++;
+	}
+	
+	/**
+	 * Reverts all changes made since the mark was set, and removes this mark together with the marks set after it.
+	 */
+	public void rollbackTo(int mark) {
+		if (mark < 0 || mark >= marksCount)
+			throw new IllegalArgumentException("No mark " + mark + " in the history");
+		revertTo(marks[mark]);
+		marksCount = mark;
+	}
+	
+	/**
+	 * Removes the last mark, keeping the changes made since it was set (they can still be reverted with
+	 * an earlier mark or with resetGraph).
+	 */
+	public void commit() {
+		if (marksCount == 0)
+			throw new IllegalStateException("No mark in the history");
+		--marksCount;
+	}
+	
+	/**
+	 * Number of marks in the history.
+	 */
+	public int marksCount() {
+		return marksCount;
+	}
+	
+	/**
+	 * Records a change in the history and returns its position, -1 if the history is not recorded.
+	 */
+	protected int recordChange(int type, int i, int j) {
+		if (history == null)
+			return -1;
+		if (historySize == history.length)
+			history = Arrays.copyOf(history, 2 * historySize);
+		history[historySize] = ((long)type << 62) | ((long)i << 31) | j;
+		return historySize++;
+	}
+	
+	/**
+	 * Reverts a change recorded at given position of the history.
+	 */
+	protected void revertChange(int type, int i, int j, int position) {
+		if (type == CH_ADDITION) {
+			performRemoveEdge(i, j);
+			notifyListenersRemove(new Edge(i, j, directed));
+		} else if (type == CH_REMOVAL) {
+			performAddEdge(i, j);
+			notifyListenersAdd(new Edge(i, j, directed));
+		} else if (type == CH_NODE) {
+			flushBatch();
+			performRemoveNode();
+		}
+	}
+	
+	private void revertTo(int size) {
+		beginBatch();
+		try {
+			while (historySize > size) {
+				long c = history[--historySize];
+				revertChange((int)(c >>> 62), (int)((c >>> 31) & NODE_MASK), (int)(c & NODE_MASK), historySize);
+			}
+		} finally {
+			endBatch();
+		}
+		while (marksCount > 0 && marks[marksCount - 1] > historySize)
+			--marksCount;
+	}
+	
+	private Edge changeEdge(long c) {
+		return e((int)((c >>> 31) & NODE_MASK), (int)(c & NODE_MASK));
 	}
 	
 	public List<Coalition> getConnectedComponents(){
@@ -375,7 +702,11 @@ public class Graph {
 	}
 	
 	public void forceConnectivity() {
-		forceConnectivity((c, rest) -> e(c.getRandom().intValue(), rest.findAny().getAsInt()), e -> {});
+		forceConnectivity(Utils.rand());
+	}
+	
+	public void forceConnectivity(SplittableRandom rand) {
+		forceConnectivity((c, rest) -> e(c.getRandom(rand).intValue(), rest.findAny().getAsInt()), e -> {});
 	}
 	
 	public double getAverageDegree() {
@@ -387,49 +718,6 @@ public class Graph {
 		return "(" + name + ",n=" + n + ",m=" + m + (isDirected() ? ",directed" : "") + ")";
 	}
 	
-	private abstract class Change {
-		
-		protected int i;
-		protected int j;
-		
-		public Change(int i, int j) {
-			this.i = i;
-			this.j = j;
-		}
-
-		public Edge getEdge() {
-			return Graph.this.e(i, j);
-		}
-		
-		public abstract void revert();
-	}
-	
-	private class Addition extends Change {
-		
-		public Addition(int i, int j) {
-			super(i, j);
-		}
-		
-		@Override
-		public void revert() {
-			performRemoveEdge(i, j);
-			notifyListenersRemove(new Edge(i, j, directed));
-		}
-	}
-	
-	private class Removal extends Change {
-		
-		public Removal(int i, int j) {
-			super(i, j);
-		}
-		
-		@Override
-		public void revert() {
-			performAddEdge(i, j);
-			notifyListenersAdd(new Edge(i, j, directed));
-		}
-	}
-	
 	private class EdgesIterator implements Iterator<Edge>{
 		
 		private int i;
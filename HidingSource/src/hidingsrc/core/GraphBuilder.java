@@ -0,0 +1,111 @@
+package hidingsrc.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Builder of a graph from a list of edges. Edges are gathered in a primitive array (in any order, possibly
+ * with repetitions and loops, which are skipped), sorted in parallel and deduplicated. The neighbours of every
+ * node are then laid out in primitive arrays, and the sets of neighbours are created with their final sizes
+ * and filled in parallel, without checking the edges one by one, recording history or notifying listeners.
+ *
+ * @author Marcin Waniek
+ */
+public class GraphBuilder {
+
+	private String name;
+	private int n;
+	private boolean directed;
+	private long[] edges;
+	private int size;
+
+	public GraphBuilder(String name, int n, boolean directed) {
+		this.name = name;
+		this.n = n;
+		this.directed = directed;
+		this.edges = new long[16];
+		this.size = 0;
+	}
+
+	public GraphBuilder(String name, int n) {
+		this(name, n, false);
+	}
+
+	public GraphBuilder addEdge(int i, int j) {
+		if (i == j)
+			return this;
+		if (size == edges.length)
+			edges = Arrays.copyOf(edges, 2 * size);
+		if (!directed && i > j)
+			edges[size++] = ((long)j << 32) | i;
+		else
+			edges[size++] = ((long)i << 32) | j;
+		return this;
+	}
+
+	public GraphBuilder addEdge(Edge e) {
+		return addEdge(e.i(), e.j());
+	}
+
+	/**
+	 * Adds all edges of the graph, with numbers of nodes shifted by the offset.
+	 */
+	public GraphBuilder addEdges(Graph g, int offset) {
+		for (Edge e : g.edges())
+			addEdge(e.i() + offset, e.j() + offset);
+		return this;
+	}
+
+	/**
+	 * Number of edges added so far, including repetitions.
+	 */
+	public int edgesAdded() {
+		return size;
+	}
+
+	public Graph build() {
+		Arrays.parallelSort(edges, 0, size);
+		int m = 0;
+		for (int k = 0; k < size; ++k)
+			if (k == 0 || edges[k] != edges[k - 1])
+				edges[m++] = edges[k];
+		size = m;
+		if (directed)
+			return new Graph(name, rows(true, false), rows(false, true), m, true);
+		return new Graph(name, rows(true, true), null, m, false);
+	}
+
+	/**
+	 * Sets of neighbours of all nodes: the targets of the edges leaving the node (if bySource) and the sources
+	 * of the edges entering it (if byTarget).
+	 */
+	private ArrayList<Coalition> rows(boolean bySource, boolean byTarget) {
+		int[] start = new int[n + 1];
+		for (int k = 0; k < size; ++k) {
+			if (bySource)
+				++start[(int)(edges[k] >>> 32) + 1];
+			if (byTarget)
+				++start[(int)edges[k] + 1];
+		}
+		for (int i = 0; i < n; ++i)
+			start[i + 1] += start[i];
+		int[] neighs = new int[start[n]];
+		int[] next = Arrays.copyOf(start, n);
+		for (int k = 0; k < size; ++k) {
+			int i = (int)(edges[k] >>> 32);
+			int j = (int)edges[k];
+			if (bySource)
+				neighs[next[i]++] = j;
+			if (byTarget)
+				neighs[next[j]++] = i;
+		}
+		Coalition[] res = new Coalition[n];
+		IntStream.range(0, n).parallel().forEach(i -> {
+			res[i] = Coalition.withCapacity(start[i + 1] - start[i]);
+			for (int k = start[i]; k < start[i + 1]; ++k)
+				res[i].add(neighs[k]);
+		});
+		return new ArrayList<>(Arrays.asList(res));
+	}
+}
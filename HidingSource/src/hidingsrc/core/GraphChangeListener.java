@@ -1,5 +1,7 @@
 package hidingsrc.core;
 
+import java.util.List;
+
 /**
  * Object that is notified about every change in graph's structure.
  * 
@@ -11,4 +13,22 @@ public interface GraphChangeListener {
 	public void notifyRemove(Graph g, Edge e);
 	public default void notifyOther(Graph g, Edge e) {}
 	public void notifyReset(Graph g);
+	
+	/**
+	 * Notification about a node added to or removed from the graph, by default treated as a reset.
+	 */
+	public default void notifyResize(Graph g) {
+		notifyReset(g);
+	}
+	
+	/**
+	 * Notification about all edges added and removed during a batch of changes (see Graph.beginBatch),
+	 * by default passed on as separate notifications.
+	 */
+	public default void notifyBatch(Graph g, List<Edge> added, List<Edge> removed) {
+		for (Edge e : removed)
+			notifyRemove(g, e);
+		for (Edge e : added)
+			notifyAdd(g, e);
+	}
 }
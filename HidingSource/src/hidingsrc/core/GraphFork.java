@@ -0,0 +1,79 @@
+package hidingsrc.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Graph starting as a copy of a base graph, sharing its sets of neighbours until they are changed. The set
+ * of a node is copied only when an edge of this node is added or removed, so a fork differing from its base
+ * by a few edges takes little memory and is created in O(1). The base cannot be changed while its forks are
+ * used, but it can be read by many forks at the same time, e.g., by heuristics run in parallel.
+ * 
+ * @author Marcin Waniek
+ */
+public class GraphFork extends Graph {
+
+	private Graph base;
+	private long baseVersion;
+	private Map<Integer, Coalition> succsChanged;
+	private Map<Integer, Coalition> predsChanged;
+	
+	public GraphFork(Graph base) {
+		super(base.getName(), base.size(), base.edgesCount(), base.isDirected());
+		this.base = base;
+		this.baseVersion = base.getVersion();
+		this.succsChanged = new HashMap<>();
+		this.predsChanged = base.isDirected() ? new HashMap<>() : succsChanged;
+	}
+	
+	public Graph getBase() {
+		return base;
+	}
+	
+	@Override
+	public Coalition getSuccs(int i) {
+		Coalition res = succsChanged.get(i);
+		return res != null ? res : baseRow(i, false);
+	}
+	
+	@Override
+	public Coalition getPreds(int i) {
+		Coalition res = predsChanged.get(i);
+		return res != null ? res : baseRow(i, true);
+	}
+	
+	@Override
+	protected Coalition getSuccsToChange(int i) {
+		return succsChanged.computeIfAbsent(i, k -> new Coalition(baseRow(k, false)));
+	}
+	
+	@Override
+	protected Coalition getPredsToChange(int i) {
+		return predsChanged.computeIfAbsent(i, k -> new Coalition(baseRow(k, true)));
+	}
+	
+	/**
+	 * Nodes added to the fork have their own sets from the start.
+	 */
+	@Override
+	protected void addNodeSets(int v) {
+		succsChanged.put(v, new Coalition());
+		if (isDirected())
+			predsChanged.put(v, new Coalition());
+	}
+	
+	@Override
+	protected void removeNodeSets(int v) {
+		succsChanged.remove(v);
+		predsChanged.remove(v);
+	}
+	
+	@Override
+	public void ensureCapacity(int n) {}
+	
+	private Coalition baseRow(int i, boolean preds) {
+		if (base.getVersion() != baseVersion)
+			throw new IllegalStateException("Base graph was changed after forking");
+		return preds ? base.getPreds(i) : base.getSuccs(i);
+	}
+}
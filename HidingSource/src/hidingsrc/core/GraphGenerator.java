@@ -1,13 +1,11 @@
 package hidingsrc.core;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
-import hidingsrc.utils.ProbabilityDistribution;
 import hidingsrc.utils.Utils;
 
 /**
@@ -20,22 +18,25 @@ public class GraphGenerator {
 	public static Graph combine(List<Graph> gs){
 		int n = gs.stream().mapToInt(g -> g.size()).sum();
 		String name = gs.stream().map(g -> g.getName()).reduce((s1,s2) -> s1 + "+" + s2).orElse("G");
-		Graph res = new Graph(name, n);
+		GraphBuilder res = new GraphBuilder(name, n);
 		int offset = 0;
 		for (Graph g : gs) {
-			for (Edge e : g.edges())
-				res.addEdge(e.i() + offset, e.j() + offset);
+			res.addEdges(g, offset);
 			offset += g.size();
 		}
-		return res;
+		return res.build();
 	}
 	
 	public static Graph randomlyDistort(Graph g, double prob){
+		return randomlyDistort(g, prob, Utils.rand());
+	}
+	
+	public static Graph randomlyDistort(Graph g, double prob, SplittableRandom rand){
 		Graph res = new Graph(g.getName(), g.size());
 		for (int i : g.nodes())
 			for (int j : g.nodes())
 				if (i < j || (g.isDirected() && i != j)){
-					double r = Utils.RAND.nextDouble();
+					double r = rand.nextDouble();
 					if ((!g.containsEdge(i, j) && r <= prob) || (g.containsEdge(i, j) && r > prob)) 
 						res.addEdge(i, j);
 				}
@@ -43,21 +44,29 @@ public class GraphGenerator {
 	}
 	
 	public static Graph randomlyRemove(Graph g, double prob){
+		return randomlyRemove(g, prob, Utils.rand());
+	}
+	
+	public static Graph randomlyRemove(Graph g, double prob, SplittableRandom rand){
 		Graph res = new Graph(g.getName(), g.size());
 		for (int i : g.nodes())
 			for (int j : g.nodes())
 				if ((i < j || (g.isDirected() && i != j))
-						&& g.containsEdge(i, j) && Utils.RAND.nextDouble() > prob) 
+						&& g.containsEdge(i, j) && rand.nextDouble() > prob) 
 					res.addEdge(i, j);
 		return res;
 	}
 
 	public static Graph randomlyAdd(Graph g, double prob){
+		return randomlyAdd(g, prob, Utils.rand());
+	}
+	
+	public static Graph randomlyAdd(Graph g, double prob, SplittableRandom rand){
 		Graph res = new Graph(g.getName(), g.size());
 		for (int i : g.nodes())
 			for (int j : g.nodes())
 				if ((i < j || (g.isDirected() && i != j))
-						&& (g.containsEdge(i, j) || Utils.RAND.nextDouble() <= prob)) 
+						&& (g.containsEdge(i, j) || rand.nextDouble() <= prob)) 
 					res.addEdge(i, j);
 		return res;
 	}
@@ -131,30 +140,51 @@ public class GraphGenerator {
 	}
 	
 	public static Graph generateBarabasiAlbertGraph(int n, int avgDegree, boolean directed){
+		return generateBarabasiAlbertGraph(n, avgDegree, directed, Utils.rand());
+	}
+	
+	public static Graph generateBarabasiAlbertGraph(int n, int avgDegree, boolean directed, SplittableRandom rand){
 		String name = "ba-" + n + "-" + avgDegree;
 		if (directed)
 			name = "d" + name;
 		int m = avgDegree / 2; // how many edges are added with each node
-		Graph res = new Graph(name, n, directed);
-		ProbabilityDistribution<Integer> pd = new ProbabilityDistribution<>(
-				Utils.asList(IntStream.range(0, n).boxed()), i -> (double)res.getDegree(i));
-		for (int i = 0; i <= m; ++i)
+		GraphBuilder res = new GraphBuilder(name, n, directed);
+		// every node appears in endpoints once per its neighbour, so drawing from it is proportional to degree
+		int[] endpoints = new int[2 * m * Math.max(n, 1)];
+		int size = 0;
+		for (int i = 0; i <= m && i < n; ++i)
 			for (int j = 0; j < i; ++j) {
 				res.addEdge(i, j);
 				if (directed)
 					res.addEdge(j, i);
+				endpoints[size++] = i;
+				endpoints[size++] = j;
 			}
+		int[] chosen = new int[m];
 		for (int i = m + 1; i < n; ++i) {
 			for (int edge = 0; edge < m; ++edge){
-				int fi = i;
-				int j = pd.drawFiltered(k -> k != fi && !res.containsEdge(fi, k));
+				int j;
+				do {
+					j = endpoints[rand.nextInt(size)];
+				} while (contains(chosen, edge, j));
+				chosen[edge] = j;
 				res.addEdge(i, j);
 				if (directed)
 					res.addEdge(j, i);
 			}
-			pd.reset();
+			for (int j : chosen) {
+				endpoints[size++] = i;
+				endpoints[size++] = j;
+			}
 		}
-		return res;
+		return res.build();
+	}
+	
+	private static boolean contains(int[] arr, int length, int v) {
+		for (int k = 0; k < length; ++k)
+			if (arr[k] == v)
+				return true;
+		return false;
 	}
 	
 /* 
@@ -174,6 +204,11 @@ public class GraphGenerator {
 	}
 	
 	public static Graph generateScaleFreeConfigurationModel(int n, double alpha, int kMin, int kMax) {
+		return generateScaleFreeConfigurationModel(n, alpha, kMin, kMax, Utils.rand());
+	}
+	
+	public static Graph generateScaleFreeConfigurationModel(int n, double alpha, int kMin, int kMax,
+			SplittableRandom rand) {
 		while (true) {
 			String name = "sfc-" + n + "-" + Math.round(alpha)
 					+ (kMin != 1 || kMax != n-1 ? "-" + kMin + "-" + kMax : "");
@@ -181,7 +216,7 @@ public class GraphGenerator {
 			List<Integer> degrees = new ArrayList<>();
 			int dSum = 0;
 			for (int i = 0; i < n; ++i) {
-				int d = powerLaw(alpha, kMin, kMax);
+				int d = powerLaw(alpha, kMin, kMax, rand);
 				degrees.add(d);
 				dSum += d;
 			}
@@ -198,7 +233,7 @@ public class GraphGenerator {
 					stubs.add(v);
 			int tries = 0;
 			while (!stubs.isEmpty() && tries++ < 5) {
-				Collections.shuffle(stubs);
+				Utils.shuffle(stubs, rand);
 				List<Integer> failures = new ArrayList<>();
 				for (int i = 0; i < stubs.size(); i += 2)
 					if (!res.addEdge(stubs.get(i), stubs.get(i + 1))) {
@@ -207,16 +242,16 @@ public class GraphGenerator {
 					}
 				stubs = failures;
 			}
-			res.forceConnectivity();
+			res.forceConnectivity(rand);
 			if (stubs.isEmpty())
 				return res;
 		}
 	}
 	
-	private static int powerLaw(double alpha, int kMin, int kMax){
+	private static int powerLaw(double alpha, int kMin, int kMax, SplittableRandom rand){
 		double norm = 1./(Utils.hurwiczZeta(alpha, kMin, .00001)
 						-Utils.hurwiczZeta(alpha, kMax+1, .00001));
-		double rng = Utils.RAND.nextDouble();
+		double rng = rand.nextDouble();
 		double prob = 0.;		
 		for (int k = kMin; k <= kMax; ++k) {
 			prob += Math.pow((double)k, -alpha) * norm;
@@ -242,21 +277,26 @@ public class GraphGenerator {
 	}
 	
 	public static Graph generateErdosRenyiGraph(int n, Integer avgDegree, boolean directed){
+		return generateErdosRenyiGraph(n, avgDegree, directed, Utils.rand());
+	}
+	
+	public static Graph generateErdosRenyiGraph(int n, Integer avgDegree, boolean directed, SplittableRandom rand){
 		String name = "er-" + n + "-" + avgDegree;
 		double prob = (double) avgDegree / (n - 1);
 		if (directed) {
 			name = "d" + name;
 			prob /= 2.;
 		}
-		Graph res = new Graph(name, n, directed);
-		for (int i : res.nodes())
+		GraphBuilder builder = new GraphBuilder(name, n, directed);
+		for (int i = 0; i < n; ++i)
 			for (int j = i + 1; j < n; ++j){
-				if (Utils.RAND.nextDouble() <= prob)
-					res.addEdge(i, j);
-				if (directed && Utils.RAND.nextDouble() <= prob)
-					res.addEdge(j, i);
+				if (rand.nextDouble() <= prob)
+					builder.addEdge(i, j);
+				if (directed && rand.nextDouble() <= prob)
+					builder.addEdge(j, i);
 			}
-		res.forceConnectivity();
+		Graph res = builder.build();
+		res.forceConnectivity(rand);
 		return res;
 	}
 	
@@ -278,6 +318,11 @@ public class GraphGenerator {
 	}
 	
 	public static Graph generateSmallWorldGraph(int n, int avgDegree, double beta, boolean directed){
+		return generateSmallWorldGraph(n, avgDegree, beta, directed, Utils.rand());
+	}
+	
+	public static Graph generateSmallWorldGraph(int n, int avgDegree, double beta, boolean directed,
+			SplittableRandom rand){
 		String name = "ws-" + n + "-" + avgDegree + "-" + Math.round(beta * 100.);
 		if (directed)
 			name = "d" + name;
@@ -290,20 +335,20 @@ public class GraphGenerator {
 			}
 		if (avgDegree < n - 1)
 			for (Edge e : res.edgesStream().collect(Collectors.toList()))
-				if (Utils.RAND.nextDouble() < beta && res.getOutDegree(e.i()) < res.size() - 1){
+				if (rand.nextDouble() < beta && res.getOutDegree(e.i()) < res.size() - 1){
 					int i = e.i();
 					int j = i;
 					if (res.getOutDegree(i) > res.size() / 1000)
 						j = Utils.getRandom(
 								res.nodesStream().filter(k -> k != i && !res.getSuccs(i).contains(k)).boxed(),
-								n - res.getOutDegree(i) - 1);
+								n - res.getOutDegree(i) - 1, rand);
 					else
 						while (j == i || res.getSuccs(i).contains(j))
-							j = Utils.RAND.nextInt(res.size());
+							j = rand.nextInt(res.size());
 					res.removeEdge(e);
 					res.addEdge(i, j);
 				}
-		res.forceConnectivity();
+		res.forceConnectivity(rand);
 		return res;
 	}
 
@@ -319,9 +364,13 @@ public class GraphGenerator {
  */
 	
 	public static Graph generatePruferTree(int n) {
+		return generatePruferTree(n, Utils.rand());
+	}
+	
+	public static Graph generatePruferTree(int n, SplittableRandom rand) {
 		int[] a = new int[n-2];
 		for (int i = 0; i < a.length; ++i)
-			a[i] = Utils.RAND.nextInt(n);
+			a[i] = rand.nextInt(n);
 		int[] degr = new int[n];
 		for (int i = 0; i < degr.length; ++i)
 			degr[i] = 1;
@@ -408,6 +457,11 @@ public class GraphGenerator {
  */
 	public static Graph generateIslandsNetwork(String name, int nodes,
 			double[] classDist, double[][] classConn, double[][] numAttrMeans, double[][] numAttrSds){
+		return generateIslandsNetwork(name, nodes, classDist, classConn, numAttrMeans, numAttrSds, Utils.rand());
+	}
+	
+	public static Graph generateIslandsNetwork(String name, int nodes, double[] classDist, double[][] classConn,
+			double[][] numAttrMeans, double[][] numAttrSds, SplittableRandom rand){
 		Graph g = new Graph(name, nodes);
 		int[] cls = new int[nodes];
 		int cFirst = 0;
@@ -422,14 +476,19 @@ public class GraphGenerator {
 		}
 		for (int v = 0; v < nodes; ++v)
 			for (int w = v + 1; w < nodes; ++w)
-				if (Utils.RAND.nextDouble() < classConn[cls[v]][cls[w]])
+				if (rand.nextDouble() < classConn[cls[v]][cls[w]])
 					g.addEdge(v, w);
-		g.forceConnectivity();
+		g.forceConnectivity(rand);
 		return g;
 	}
 	
 	public static Graph generateIslandsNetwork(int cNum, int cSize,
 			double dSame, double dOther, int attributes, double attrSd, boolean homophily){
+		return generateIslandsNetwork(cNum, cSize, dSame, dOther, attributes, attrSd, homophily, Utils.rand());
+	}
+	
+	public static Graph generateIslandsNetwork(int cNum, int cSize, double dSame, double dOther, int attributes,
+			double attrSd, boolean homophily, SplittableRandom rand){
 		int n = cNum * cSize;
 		String name = (homophily ? "isl-" : "islu-") + n;
 		double[] cd = new double[cNum];
@@ -446,13 +505,13 @@ public class GraphGenerator {
 		for (int i = 0; i < attributes; ++i)
 			for (int j = 0; j < cNum; ++j)
 				if (homophily)
-					ms[i][j] = Utils.RAND.nextDouble();
+					ms[i][j] = rand.nextDouble();
 				else
 					ms[i][j] = .5;
 		double[][] sd = new double[attributes][cNum];
 		for (int i = 0; i < attributes; ++i)
 			for (int j = 0; j < cNum; ++j)
 				sd[i][j] = attrSd;
-		return generateIslandsNetwork(name, n, cd, cc, ms, sd);
+		return generateIslandsNetwork(name, n, cd, cc, ms, sd, rand);
 	}
 }
\ No newline at end of file
@@ -1,11 +1,11 @@
 package hidingsrc.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 import java.util.stream.Stream;
 
 /**
@@ -18,7 +18,7 @@ public class LWGraph<V,E> extends Graph {
 	private List<V> labels;
 	private Map<V, Coalition> indices;
 	private List<Map<Integer, E>> weights;
-	private Stack<WeightedChange> history;
+	private Object[] historyWeights;
 	
 	public LWGraph(String name, int n, boolean directed){
 		super(name, n, directed);
@@ -66,7 +66,7 @@ public class LWGraph<V,E> extends Graph {
 				this.labels.add(null);
 			indices.put(null, Coalition.getFull(size()));
 		} else {
-			this.labels = labels;
+			this.labels = new ArrayList<>(labels);
 			for (int i = 0; i < size(); ++i) {
 				final int fi = i;
 				indices.compute(labels.get(fi), (v,c) -> c == null ? new Coalition(fi) : c.add(fi));
@@ -75,6 +75,7 @@ public class LWGraph<V,E> extends Graph {
 		this.weights = new ArrayList<>();
 		for (int i = 0; i < size(); ++i)
 			this.weights.add(new HashMap<>());
+		this.historyWeights = new Object[0];
 	}
 	
 	public V l(int i) {
@@ -107,6 +108,29 @@ public class LWGraph<V,E> extends Graph {
 		return addEdge(findNode(v), findNode(u));
 	}
 	
+	/**
+	 * Adds a new node without a label.
+	 */
+	@Override
+	public int addNode() {
+		labels.add(null);
+		weights.add(new HashMap<>());
+		int v = size();
+		indices.compute(null, (l,c) -> c == null ? new Coalition(v) : c.add(v));
+		return super.addNode();
+	}
+	
+	@Override
+	protected void performRemoveNode() {
+		int v = size() - 1;
+		V label = labels.remove(v);
+		weights.remove(v);
+		indices.get(label).remove(v);
+		if (indices.get(label).isEmpty())
+			indices.remove(label);
+		super.performRemoveNode();
+	}
+	
 	public boolean addEdge(int i, int j){
 		return addEdge(i, j, null);
 	}
@@ -118,8 +142,7 @@ public class LWGraph<V,E> extends Graph {
 	public boolean addEdge(int i, int j, E w){
 		if (i != j && !containsEdge(i, j)){
 			performAddEdge(i, j, w);
-			if (history != null)
-				history.push(new WeightedAddition(i, j));
+			recordChange(CH_ADDITION, i, j);
 			notifyListenersAdd(new Edge(i, j, isDirected()));
 			return true;
 		} else
@@ -136,8 +159,7 @@ public class LWGraph<V,E> extends Graph {
 	
 	public boolean removeEdge(int i, int j){
 		if (i != j && containsEdge(i, j)){
-			if (history != null)
-				history.push(new WeightedRemoval(i, j, w(i, j)));
+			recordWeight(recordChange(CH_REMOVAL, i, j), w(i, j));
 			performRemoveEdge(i, j);
 			notifyListenersRemove(new Edge(i, j, isDirected()));
 			return true;
@@ -190,8 +212,7 @@ public class LWGraph<V,E> extends Graph {
 	}
 	
 	public void setWeight(int i, int j, E w) {
-		if (history != null)
-			history.push(new SettingWeight(i, j, w(i,j)));
+		recordWeight(recordChange(CH_OTHER, i, j), w(i, j));
 		performSetWeight(i, j, w);
 		notifyListenersOther(e(i,j));
 	}
@@ -208,6 +229,7 @@ public class LWGraph<V,E> extends Graph {
 		weights.get(i).put(j, w);
 		if (!isDirected())
 			weights.get(j).put(i, w);
+		incrementVersion();
 	}
 	
 	public Stream<V> getSuccsLabels(V v){
@@ -222,105 +244,29 @@ public class LWGraph<V,E> extends Graph {
 		return getNeighs(findNode(v)).stream().mapToObj(j -> l(j));
 	}
 	
-	@Override
-	public void startRecordingHistory(){
-		history = new Stack<>();
+	/**
+	 * Keeps the weight of an edge before the change recorded at given position of the history.
+	 */
+	private void recordWeight(int position, E prevW) {
+		if (position < 0)
+			return;
+		if (position >= historyWeights.length)
+			historyWeights = Arrays.copyOf(historyWeights, Math.max(2 * historyWeights.length, position + 1));
+		historyWeights[position] = prevW;
 	}
 	
+	@SuppressWarnings("unchecked")
 	@Override
-	public void stopRecordingHistory(){
-		history = null;
-	}
-
-	public boolean isRecordingHistory(){
-		return history != null;
-	}
-
-	public Edge getLastChange() {
-		return history.peek().getEdge();
-	}
-
-	public Stream<Edge> getChanges() {
-		return history.stream().map(c -> c.getEdge());
-	}
-	
-	@Override
-	public void resetGraph(){
-		if (history != null){
-			while (!history.empty())
-				history.pop().revert();
-			notifyListenersReset();
-		}
-	}
-	
-	@Override
-	public void revertChanges(int k){
-		if (history != null){
-			for (int i = 0; i < k; ++i)
-				if (!history.empty())
-					history.pop().revert();
-		}
-	}
-	
-	@Override
-	public int historySize(){
-		return history == null ? 0 : history.size();
-	}
-	
-	private abstract class WeightedChange {
-		
-		protected int i;
-		protected int j;
-		protected E prevW;
-		
-		public WeightedChange(int i, int j, E prevW) {
-			this.i = i;
-			this.j = j;
-			this.prevW = prevW;
-		}
-
-		public Edge getEdge() {
-			return LWGraph.this.e(i, j);
-		}
-		
-		public abstract void revert();
-	}
-	
-	private class WeightedAddition extends WeightedChange {
-		
-		public WeightedAddition(int i, int j) {
-			super(i, j, null);
-		}
-		
-		@Override
-		public void revert() {
-			performRemoveEdge(i, j);
-			notifyListenersRemove(new Edge(i, j, isDirected()));
-		}
-	}
-	
-	private class WeightedRemoval extends WeightedChange {
-		
-		public WeightedRemoval(int i, int j, E prevW) {
-			super(i, j, prevW);
-		}
-		
-		@Override
-		public void revert() {
+	protected void revertChange(int type, int i, int j, int position) {
+		E prevW = position < historyWeights.length ? (E)historyWeights[position] : null;
+		if (position < historyWeights.length)
+			historyWeights[position] = null;
+		if (type == CH_REMOVAL) {
 			performAddEdge(i, j, prevW);
 			notifyListenersAdd(new Edge(i, j, isDirected()));
-		}
-	}
-	
-	private class SettingWeight extends WeightedChange {
-		
-		public SettingWeight(int i, int j, E prevW) {
-			super(i, j, prevW);
-		}
-		
-		@Override
-		public void revert() {
+		} else if (type == CH_OTHER)
 			performSetWeight(i, j, prevW);
-		}
+		else
+			super.revertChange(type, i, j, position);
 	}
 }
@@ -1,9 +1,9 @@
 package hidingsrc.core;
 
-import java.util.stream.IntStream;
-
 /**
  * Abstraction of a Monte Carlo method.
+ * Iterations share the state of the object, so they are always run sequentially.
+ * Use ParallelMonteCarloAlgorithm for methods whose samples can be gathered independently.
  * 
  * @author Marcin Waniek
  */
@@ -34,19 +34,12 @@ public abstract class MonteCarloAlgorithm {
 	}
 
 	public Double runProcess(){
-		return runAll(() -> IntStream.range(0, getPortion()).forEach(i -> singleMCIteration()));
-	}
-	
-	public Double runParallelProcess(){
-		return runAll(() -> IntStream.range(0, getPortion()).parallel().forEach(i -> singleMCIteration()));
-	}
-	
-	private Double runAll(Runnable runPortion){
 		Double controlSum = null;
 		preProcess();
 		int iter = 0;
 		while (iter < getMaxIterations()) {
-			runPortion.run();
+			for (int i = 0; i < getPortion(); ++i)
+				singleMCIteration();
 			iter += getPortion();
 			Double newControlSum = getControlSum(iter);
 			if (controlSum != null && Math.abs(controlSum - newControlSum) < getPrecision()
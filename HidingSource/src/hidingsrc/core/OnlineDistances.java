@@ -0,0 +1,226 @@
+package hidingsrc.core;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Distances between all pairs of nodes of the subgraph induced by a group of nodes that grows or shrinks one node
+ * at a time. Adding a node updates the distances of paths going through it in O(k^2) for k nodes in the group.
+ * Only nodes not lying on any path between other nodes (see isRemovable) can be removed. Eccentricities
+ * and sums of distances of all nodes are kept along, so that they can be read in O(1).
+ *
+ * @author Marcin Waniek
+ */
+public class OnlineDistances {
+
+	public static final int INF = Integer.MAX_VALUE / 2;
+
+	private Graph g;
+	private Map<Integer,Integer> slots;
+	private int[] nodes;
+	private int[][] dist;
+	private int used;
+	private Deque<Integer> free;
+	private int[] eccentricity;
+	private long[] distanceSum;
+	private double[] inverseSum;
+	private int[] unreachable;
+
+	/**
+	 * Distances in the given subgraph, read from its BFS trees.
+	 */
+	public OnlineDistances(Graph g, CompactSubgraph sub) {
+		this.g = g;
+		this.slots = new HashMap<>();
+		this.nodes = new int[Math.max(sub.size(), 1)];
+		this.dist = new int[nodes.length][nodes.length];
+		this.used = sub.size();
+		this.free = new ArrayDeque<>();
+		this.eccentricity = new int[nodes.length];
+		this.distanceSum = new long[nodes.length];
+		this.inverseSum = new double[nodes.length];
+		this.unreachable = new int[nodes.length];
+		for (int a = 0; a < sub.size(); ++a) {
+			nodes[a] = sub.node(a);
+			slots.put(sub.node(a), a);
+			CompactSubgraph.BfsTree tree = sub.getBfsTree(a);
+			for (int b = 0; b < sub.size(); ++b)
+				dist[a][b] = tree.getDepth(b) < 0 ? INF : tree.getDepth(b);
+			scanRow(a);
+		}
+	}
+
+	public int size() {
+		return slots.size();
+	}
+
+	public boolean contains(int v) {
+		return slots.containsKey(v);
+	}
+
+	/**
+	 * Distance from v to w, INF if w is unreachable.
+	 */
+	public int getDistance(int v, int w) {
+		return dist[slots.get(v)][slots.get(w)];
+	}
+
+	/**
+	 * Largest distance from v to another node of the group, INF if some node is unreachable.
+	 */
+	public int getEccentricity(int v) {
+		return eccentricity[slots.get(v)];
+	}
+	
+	/**
+	 * Sum of distances from v to the reachable nodes of the group.
+	 */
+	public long getDistanceSum(int v) {
+		return distanceSum[slots.get(v)];
+	}
+	
+	/**
+	 * Sum of inverses of distances from v to the other reachable nodes of the group.
+	 */
+	public double getInverseDistanceSum(int v) {
+		return inverseSum[slots.get(v)];
+	}
+	
+	/**
+	 * Number of nodes of the group unreachable from v.
+	 */
+	public int getUnreachableCount(int v) {
+		return unreachable[slots.get(v)];
+	}
+	
+	public void add(int v) {
+		int s = allocate(v);
+		for (int a = 0; a < used; ++a) {
+			dist[a][s] = INF;
+			dist[s][a] = INF;
+		}
+		for (int q : g.getPreds(v))
+			if (q != v && slots.containsKey(q)) {
+				int qa = slots.get(q);
+				for (int a = 0; a < used; ++a)
+					if (a != s && nodes[a] >= 0)
+						dist[a][s] = Math.min(dist[a][s], dist[a][qa] + 1);
+			}
+		for (int q : g.getSuccs(v))
+			if (q != v && slots.containsKey(q)) {
+				int qb = slots.get(q);
+				for (int b = 0; b < used; ++b)
+					if (b != s && nodes[b] >= 0)
+						dist[s][b] = Math.min(dist[s][b], dist[qb][b] + 1);
+			}
+		dist[s][s] = 0;
+		for (int a = 0; a < used; ++a)
+			if (a != s && nodes[a] >= 0) {
+				int da = dist[a][s];
+				if (da < INF) {
+					int ecc = da;
+					distanceSum[a] += da;
+					inverseSum[a] += 1. / da;
+					for (int b = 0; b < used; ++b)
+						if (b != s && b != a && nodes[b] >= 0) {
+							int old = dist[a][b];
+							int d = da + dist[s][b];
+							if (d < old) {
+								dist[a][b] = d;
+								distanceSum[a] += d;
+								inverseSum[a] += 1. / d;
+								if (old < INF) {
+									distanceSum[a] -= old;
+									inverseSum[a] -= 1. / old;
+								} else
+									--unreachable[a];
+							}
+							ecc = Math.max(ecc, dist[a][b]);
+						}
+					eccentricity[a] = ecc;
+				} else {
+					eccentricity[a] = INF;
+					++unreachable[a];
+				}
+			}
+		scanRow(s);
+	}
+
+	/**
+	 * Whether no path between two other nodes of the group goes through v.
+	 */
+	public boolean isRemovable(int v) {
+		Coalition in = new Coalition();
+		Coalition out = new Coalition();
+		g.getPreds(v).stream().filter(q -> q != v && slots.containsKey(q)).forEach(q -> in.add(q));
+		g.getSuccs(v).stream().filter(q -> q != v && slots.containsKey(q)).forEach(q -> out.add(q));
+		return in.isEmpty() || out.isEmpty() || (in.size() == 1 && in.equals(out));
+	}
+
+	/**
+	 * Removes v, which has to be removable.
+	 */
+	public void remove(int v) {
+		int s = slots.remove(v);
+		nodes[s] = -1;
+		free.push(s);
+		for (int a = 0; a < used; ++a)
+			if (nodes[a] >= 0) {
+				int d = dist[a][s];
+				if (d < INF) {
+					distanceSum[a] -= d;
+					inverseSum[a] -= 1. / d;
+				} else
+					--unreachable[a];
+				if (d == eccentricity[a])
+					scanRow(a);
+			}
+	}
+	
+	private void scanRow(int a) {
+		int ecc = 0;
+		long sum = 0;
+		double inverse = 0.;
+		int unreached = 0;
+		for (int b = 0; b < used; ++b)
+			if (b != a && nodes[b] >= 0) {
+				int d = dist[a][b];
+				ecc = Math.max(ecc, d);
+				if (d < INF) {
+					sum += d;
+					inverse += 1. / d;
+				} else
+					++unreached;
+			}
+		eccentricity[a] = ecc;
+		distanceSum[a] = sum;
+		inverseSum[a] = inverse;
+		unreachable[a] = unreached;
+	}
+
+	private int allocate(int v) {
+		int s;
+		if (!free.isEmpty())
+			s = free.pop();
+		else {
+			if (used == nodes.length) {
+				int capacity = 2 * nodes.length;
+				nodes = Arrays.copyOf(nodes, capacity);
+				eccentricity = Arrays.copyOf(eccentricity, capacity);
+				distanceSum = Arrays.copyOf(distanceSum, capacity);
+				inverseSum = Arrays.copyOf(inverseSum, capacity);
+				unreachable = Arrays.copyOf(unreachable, capacity);
+				dist = Arrays.copyOf(dist, capacity);
+				for (int a = 0; a < capacity; ++a)
+					dist[a] = a < used ? Arrays.copyOf(dist[a], capacity) : new int[capacity];
+			}
+			s = used++;
+		}
+		nodes[s] = v;
+		slots.put(v, s);
+		return s;
+	}
+}
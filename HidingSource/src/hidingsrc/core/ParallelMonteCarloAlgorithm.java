@@ -0,0 +1,108 @@
+package hidingsrc.core;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import hidingsrc.utils.Utils;
+
+/**
+ * Abstraction of a Monte Carlo method that can be safely run in parallel.
+ * Every portion of iterations is divided into a fixed number of chunks. Every chunk samples into its own
+ * accumulator using its own random stream, split from the caller's generator when the process starts.
+ * Accumulators of all chunks are merged in the order of chunks at the end of every portion and convergence
+ * is checked on the merged state. Since the number of chunks is a parameter (and not the number of available
+ * processors), the result depends only on the seed, and runProcess() and runParallelProcess() give the same.
+ * 
+ * @author Marcin Waniek
+ *
+ * @param <A> type of the per-chunk accumulator
+ */
+public abstract class ParallelMonteCarloAlgorithm<A> {
+	
+	private int chunks;
+	
+	public ParallelMonteCarloAlgorithm(int chunks) {
+		if (chunks < 1)
+			throw new IllegalArgumentException("Number of chunks has to be positive");
+		this.chunks = chunks;
+	}
+	
+	protected void preProcess(){}
+
+	protected abstract A createAccumulator();
+	
+	/**
+	 * Single sample added to acc. It may read, but not change, the state of the object.
+	 */
+	protected abstract void singleMCIteration(A acc, SplittableRandom rand);
+	
+	/**
+	 * Adds the samples gathered in other to acc.
+	 */
+	protected abstract void merge(A acc, A other);
+	
+	protected abstract double getControlSum(A acc, int iter);
+	
+	protected void postProcess(A acc){}
+	
+	public int getPortion(){
+		return 1000;
+	}
+	
+	public int getMinIterations(){
+		return 1000;
+	}
+	
+	public int getMaxIterations(){
+		return 1000000;
+	}
+	
+	public double getPrecision(){
+		return 0.00001;
+	}
+	
+	public int getChunks(){
+		return chunks;
+	}
+	
+	public A runProcess(){
+		return runAll(false);
+	}
+	
+	public A runParallelProcess(){
+		return runAll(true);
+	}
+	
+	private A runAll(boolean parallel){
+		SplittableRandom[] rands = new SplittableRandom[chunks];
+		SplittableRandom rand = Utils.rand();
+		for (int c = 0; c < chunks; ++c)
+			rands[c] = rand.split();
+		preProcess();
+		A res = createAccumulator();
+		Double controlSum = null;
+		int iter = 0;
+		while (iter < getMaxIterations()) {
+			int portion = getPortion();
+			IntStream ids = parallel ? IntStream.range(0, chunks).parallel() : IntStream.range(0, chunks);
+			List<A> parts = ids.mapToObj(c -> {
+				A acc = createAccumulator();
+				for (int i = portion / chunks + (c < portion % chunks ? 1 : 0); i > 0; --i)
+					singleMCIteration(acc, rands[c]);
+				return acc;
+			}).collect(Collectors.toList());
+			for (A part : parts)
+				merge(res, part);
+			iter += portion;
+			double newControlSum = getControlSum(res, iter);
+			if (controlSum != null && Math.abs(controlSum - newControlSum) < getPrecision()
+					&& iter > getMinIterations())
+				break;
+			controlSum = newControlSum;
+		}
+		postProcess(res);
+		return res;
+	}
+}
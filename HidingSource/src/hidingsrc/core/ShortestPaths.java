@@ -8,6 +8,8 @@ import hidingsrc.utils.Utils;
 
 /**
  * Class keeping track of shortest paths between pairs of nodes using Dijkstra's algorithm.
+ * The distances are computed lazily and can be read from many threads at once (e.g. on a snapshot of a graph
+ * used by concurrent detectors, see Graph.snapshot); the graph itself must not change meanwhile.
  * 
  * @author Marcin Waniek
  */
@@ -17,7 +19,7 @@ public class ShortestPaths implements GraphChangeListener {
 	private static final double DELTA = .000001;
 
 	protected Graph g;
-	protected double[][] spLength;
+	protected volatile double[][] spLength;
 	protected int[][] spNumber;
 	protected Integer[][] spStep;
 	protected int lowMemorySpRoot;
@@ -44,7 +46,7 @@ public class ShortestPaths implements GraphChangeListener {
 		return spLength[i][j];
 	}
 
-	public double getLowMemoryDistance(int i, int j){
+	public synchronized double getLowMemoryDistance(int i, int j){
 		if (lowMemorySpRoot != i)
 			recountLowMemoryDistances(i);
 		return lowMemorySpLength[j];
@@ -58,7 +60,7 @@ public class ShortestPaths implements GraphChangeListener {
 		return spNumber[i][j];
 	}
 
-	public int getLowMemoryNumberOfShortestPaths(int i, int j){
+	public synchronized int getLowMemoryNumberOfShortestPaths(int i, int j){
 		if (lowMemorySpRoot != i)
 			recountLowMemoryDistances(i);
 		return lowMemorySpNumber[j];
@@ -72,7 +74,7 @@ public class ShortestPaths implements GraphChangeListener {
 		return spStep[i][j];
 	}
 	
-	public Integer getLowMemoryStep(int i, int j){
+	public synchronized Integer getLowMemoryStep(int i, int j){
 		if (lowMemorySpRoot != i)
 			recountLowMemoryDistances(i);
 		return lowMemorySpStep[j];
@@ -89,7 +91,7 @@ public class ShortestPaths implements GraphChangeListener {
 		return p;
 	}
 	
-	public Path getLowMemoryShortestPath(int from, int to){
+	public synchronized Path getLowMemoryShortestPath(int from, int to){
 		if (lowMemorySpRoot != from)
 			recountLowMemoryDistances(from);
 		Path p = new Path(to);
@@ -106,21 +108,27 @@ public class ShortestPaths implements GraphChangeListener {
 		return findAllShortestPaths(from, to, spLength[from]);
 	}
 	
-	public List<Path> getLowMemoryShortestPaths(int from, int to){
+	public synchronized List<Path> getLowMemoryShortestPaths(int from, int to){
 		if (lowMemorySpRoot != from)
 			recountLowMemoryDistances(from);
 		return findAllShortestPaths(from, to, lowMemorySpLength);
 	}
 	
-	private void recountDistances(){
-		spLength = new double[g.size()][g.size()];
+	/**
+	 * Publishes spLength last, so that a thread which sees it non-null also sees complete spNumber and spStep.
+	 */
+	private synchronized void recountDistances(){
+		if (spLength != null)
+			return;
+		double[][] length = new double[g.size()][g.size()];
 		spNumber = new int[g.size()][g.size()];
 		spStep = new Integer[g.size()][g.size()];
-		for (int i = 0; i < spLength.length; ++i)
-			for (int j = 0; j < spLength[i].length; ++j)
-				spLength[i][j] = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < length.length; ++i)
+			for (int j = 0; j < length[i].length; ++j)
+				length[i][j] = Double.POSITIVE_INFINITY;
 		for (int i : g.nodes())
-			findDistancesFrom(i, spLength[i], spNumber[i], spStep[i]);
+			findDistancesFrom(i, length[i], spNumber[i], spStep[i]);
+		spLength = length;
 	}
 
 	private void recountLowMemoryDistances(int i){
@@ -190,8 +198,13 @@ public class ShortestPaths implements GraphChangeListener {
 	public void notifyReset(Graph g) {
 		reactNotify();
 	}
+
+	@Override
+	public void notifyBatch(Graph g, List<Edge> added, List<Edge> removed) {
+		reactNotify();
+	}
 	
-	protected void reactNotify(){
+	protected synchronized void reactNotify(){
 		this.spLength = null;
 		this.spNumber = null;
 		this.spStep = null;
@@ -210,19 +223,19 @@ public class ShortestPaths implements GraphChangeListener {
 	protected double[] reversedLowMemorySpLength;
 	protected int[] reversedLowMemorySpNumber;
 	
-	public double getReversedLowMemoryDistance(int from, int to){
+	public synchronized double getReversedLowMemoryDistance(int from, int to){
 		if (reversedLowMemorySpRoot != to)
 			recountReversedLowMemoryDistances(to);
 		return reversedLowMemorySpLength[from];
 	}
 
-	public int getReversedLowMemoryNumberOfShortestPaths(int from, int to){
+	public synchronized int getReversedLowMemoryNumberOfShortestPaths(int from, int to){
 		if (reversedLowMemorySpRoot != to)
 			recountReversedLowMemoryDistances(to);
 		return reversedLowMemorySpNumber[from];
 	}
 	
-	public Path getReversedLowMemoryShortestPath(int from, int to){
+	public synchronized Path getReversedLowMemoryShortestPath(int from, int to){
 		if (reversedLowMemorySpRoot != to)
 			recountReversedLowMemoryDistances(to);
 		Path p = new Path(from);
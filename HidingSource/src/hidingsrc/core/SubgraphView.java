@@ -0,0 +1,107 @@
+package hidingsrc.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only view of the subgraph induced by a group of nodes, with nodes relabelled to 0..size()-1.
+ * Backed by the CSR arrays of a CompactSubgraph, without labels, weights or history; the sets of neighbours
+ * are materialized only for nodes that are asked about. The sets are published safely, so that a view can be
+ * read by many threads at the same time (see Graph.snapshot).
+ * 
+ * @author Marcin Waniek
+ */
+public class SubgraphView extends Graph {
+
+	private CompactSubgraph sub;
+	private AtomicReferenceArray<Coalition> succsCache;
+	private AtomicReferenceArray<Coalition> predsCache;
+	
+	public SubgraphView(CompactSubgraph sub, String name, boolean directed) {
+		super(name, sub.size(), directed ? sub.getSuccTargets().length : sub.getSuccTargets().length / 2, directed);
+		this.sub = sub;
+		this.succsCache = new AtomicReferenceArray<>(sub.size());
+		this.predsCache = directed ? new AtomicReferenceArray<>(sub.size()) : succsCache;
+	}
+	
+	public SubgraphView(Graph g, Coalition c) {
+		this(new CompactSubgraph(g, c), "induced(" + g.getName() + ")", g.isDirected());
+	}
+	
+	public CompactSubgraph getCompact() {
+		return sub;
+	}
+	
+	/**
+	 * Node of the parent graph represented by node k of the view.
+	 */
+	public int getOriginal(int k) {
+		return sub.node(k);
+	}
+	
+	/**
+	 * Node of the view representing node v of the parent graph, -1 if v is outside of the view.
+	 */
+	public int getIndex(int v) {
+		return sub.index(v);
+	}
+	
+	@Override
+	public Coalition getSuccs(int i) {
+		return cached(succsCache, sub.getSuccOffsets(), sub.getSuccTargets(), i);
+	}
+	
+	@Override
+	public Coalition getPreds(int i) {
+		return cached(predsCache, sub.getPredOffsets(), sub.getPredTargets(), i);
+	}
+	
+	@Override
+	public int getOutDegree(int i) {
+		return sub.getSuccOffsets()[i + 1] - sub.getSuccOffsets()[i];
+	}
+	
+	@Override
+	public int getInDegree(int i) {
+		return sub.getPredOffsets()[i + 1] - sub.getPredOffsets()[i];
+	}
+	
+	/**
+	 * Row i of the cache, materialized on first use; if two threads materialize it at the same time,
+	 * both get the set published first.
+	 */
+	private static Coalition cached(AtomicReferenceArray<Coalition> cache, int[] offsets, int[] targets, int i) {
+		Coalition res = cache.get(i);
+		if (res == null) {
+			cache.compareAndSet(i, null, row(offsets, targets, i));
+			res = cache.get(i);
+		}
+		return res;
+	}
+	
+	private static Coalition row(int[] offsets, int[] targets, int i) {
+		Coalition res = new Coalition();
+		for (int e = offsets[i]; e < offsets[i + 1]; ++e)
+			res.add(targets[e]);
+		return res;
+	}
+	
+	@Override
+	public int addNode() {
+		throw new UnsupportedOperationException("Subgraph view is read-only");
+	}
+	
+	@Override
+	public void ensureCapacity(int n) {
+		throw new UnsupportedOperationException("Subgraph view is read-only");
+	}
+	
+	@Override
+	public boolean addEdge(int i, int j) {
+		throw new UnsupportedOperationException("Subgraph view is read-only");
+	}
+	
+	@Override
+	public boolean removeEdge(int i, int j) {
+		throw new UnsupportedOperationException("Subgraph view is read-only");
+	}
+}
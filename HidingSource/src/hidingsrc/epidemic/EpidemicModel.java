@@ -1,10 +1,14 @@
 package hidingsrc.epidemic;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 import hidingsrc.core.Coalition;
+import hidingsrc.core.Edge;
 import hidingsrc.core.Graph;
+import hidingsrc.utils.Utils;
 
 /**
  * Representation of an epidemic diffusion model.
@@ -18,6 +22,10 @@ public abstract class EpidemicModel {
 	protected int t;
 	protected Graph g;
 	protected int diffusionRounds;
+	protected int[] resultNodes;
+	protected int resultSize;
+	private long[] resultBuffer;
+	private SplittableRandom rand;
 	
 	public EpidemicModel(int diffusionRounds) {
 		this.infected = null;
@@ -25,6 +33,10 @@ public abstract class EpidemicModel {
 		this.t = 0;
 		this.g = null;
 		this.diffusionRounds = diffusionRounds;
+		this.resultNodes = null;
+		this.resultSize = 0;
+		this.resultBuffer = null;
+		this.rand = null;
 	}
 	
 	public abstract String getName();
@@ -33,6 +45,12 @@ public abstract class EpidemicModel {
 	
 	protected abstract Coalition executeOneStep();
 	
+	/**
+	 * New model with the same parameters, without diffusion state and random generator,
+	 * that can be used independently from this one (e.g., by another thread).
+	 */
+	public abstract EpidemicModel copy();
+	
 	public Coalition getInfected() {
 		return infected;
 	}
@@ -53,6 +71,44 @@ public abstract class EpidemicModel {
 		this.diffusionRounds = diffusionRounds;
 	}
 	
+	/**
+	 * Random generator used by the diffusion, the generator of the current thread if none was set.
+	 */
+	public SplittableRandom getRandom() {
+		return rand != null ? rand : Utils.rand();
+	}
+	
+	public void setRandom(SplittableRandom rand) {
+		this.rand = rand;
+	}
+	
+	/**
+	 * Samples a live-edge graph, in which the nodes reachable from the source in at most getLiveEdgeDepth() steps
+	 * are distributed exactly like the result of the diffusion. Returns null if the model has no such representation.
+	 */
+	public LiveEdgeSample sampleLiveEdges(Graph g) {
+		return null;
+	}
+	
+	public int getLiveEdgeDepth() {
+		return Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Whether the model can sample reverse-reachable sets (see sampleReverseReachable).
+	 */
+	public boolean supportsReverseSampling() {
+		return false;
+	}
+	
+	/**
+	 * Samples the set of allowed nodes from which the diffusion would reach the root, using only allowed nodes
+	 * on the way (a reverse-reachable set). Returns false if the model does not support reverse sampling.
+	 */
+	public boolean sampleReverseReachable(int root, Graph g, Coalition allowed, ReverseReachableSet res) {
+		return false;
+	}
+	
 	protected boolean diffusionFinished() {
 		return t >= diffusionRounds;
 	}
@@ -72,6 +128,53 @@ public abstract class EpidemicModel {
 		return runDiffusion(new Coalition(source), g);
 	}
 	
+	/**
+	 * Runs the diffusion from a single source, marking the result in a packed bitset (cleared beforehand) instead
+	 * of building Coalitions. Returns the size of the result, or -1 if the diffusion was abandoned after the result
+	 * exceeded maxSize nodes. Does not update the state of the model (infected nodes, infection times).
+	 * The buffer must not be changed between runs of the same model (see startResult).
+	 */
+	public int runDiffusion(int source, Graph g, long[] res, int maxSize) {
+		Coalition c = runDiffusion(source, g);
+		startResult(res, g.size());
+		if (c.size() > maxSize)
+			return -1;
+		for (int i : c)
+			addToResult(res, i);
+		return resultSize;
+	}
+	
+	/**
+	 * Prepares the buffer for a new result of a graph with n nodes. The nodes of the result are also listed in
+	 * resultNodes, reused between runs, so if the buffer is the one of the previous run only the words of that
+	 * result are cleared, in time proportional to its size rather than to n.
+	 */
+	protected void startResult(long[] res, int n) {
+		if (resultNodes == null || resultNodes.length < n)
+			resultNodes = new int[n];
+		if (res == resultBuffer)
+			for (int k = 0; k < resultSize; ++k)
+				res[resultNodes[k] >>> 6] = 0L;
+		else
+			Arrays.fill(res, 0L);
+		resultBuffer = res;
+		resultSize = 0;
+	}
+	
+	protected void addToResult(long[] res, int i) {
+		res[i >>> 6] |= 1L << i;
+		resultNodes[resultSize++] = i;
+	}
+	
+	/**
+	 * Nodes such that a diffusion which reached any of them could have had a different outcome had edge e been
+	 * added or removed. A result not containing any of them remains a valid sample of the diffusion after the change.
+	 * By default, the endpoints of the edge (the edge is examined only by the diffusion that reaches one of them).
+	 */
+	public Coalition getAffectedBy(Edge e, Graph g) {
+		return new Coalition(e.i(), e.j());
+	}
+	
 	public void startDiffusion(Coalition source, Graph g) {
 		this.g = g;
 		infected = new Coalition(source);
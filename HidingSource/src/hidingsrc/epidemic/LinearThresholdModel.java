@@ -1,8 +1,8 @@
 package hidingsrc.epidemic;
 
 import hidingsrc.core.Coalition;
+import hidingsrc.core.Edge;
 import hidingsrc.core.Graph;
-import hidingsrc.utils.Utils;
 
 /**
  * Linear threshold epidemic cascade model. 
@@ -15,20 +15,36 @@ import hidingsrc.utils.Utils;
   pages={613--632},
   year={2007}
 } 
+ * 
+ * Event-driven implementation: every node touched by the cascade gets an integer number of infected
+ * neighbours still required to activate it. Counters are decremented as neighbours activate and the node
+ * is queued for the next round the moment its counter reaches zero, so every edge is examined at most
+ * once per cascade.
+ * 
  * @author Marcin Waniek
  */
 public class LinearThresholdModel extends EpidemicModel {
 
-	private double[] thresholds;
-	private int[] infectedNeighs;
-	private Coalition halo;
+	private int[] remaining;
+	private boolean[] touched;
+	private int[] touchedNodes;
+	private int touchedCount;
+	private int[] frontier;
+	private int frontierSize;
+	private int[] next;
+	private int nextSize;
 	private boolean finished;
 	
 	public LinearThresholdModel() {
 		super(0);
-		this.thresholds = null;
-		this.infectedNeighs = null;
-		this.halo = null;
+		this.remaining = null;
+		this.touched = null;
+		this.touchedNodes = null;
+		this.touchedCount = 0;
+		this.frontier = null;
+		this.frontierSize = 0;
+		this.next = null;
+		this.nextSize = 0;
 		this.finished = false;
 	}
 
@@ -42,23 +58,83 @@ public class LinearThresholdModel extends EpidemicModel {
 		return 0;
 	}
 	
+	@Override
+	public EpidemicModel copy() {
+		return new LinearThresholdModel();
+	}
+	
 	@Override
 	public void startDiffusion(Coalition source, Graph g) {
 		super.startDiffusion(source, g);
-		thresholds = new double[g.size()];
-		for (int i : g.nodes())
-			thresholds[i] = Utils.RAND.nextDouble();
-		infectedNeighs = new int[g.size()];
-		halo = new Coalition();
+		prepareBuffers(g.size());
 		for (int i : source)
-			for (int j : g.getSuccs(i)) {
-				++infectedNeighs[j];
-				if (!source.contains(j))
-					halo.add(j);
-			}
+			touch(i);
+		for (int i : source)
+			activate(i);
+		swapFrontier();
 		this.finished = false;
 	}
 	
+	@Override
+	public int runDiffusion(int source, Graph g, long[] res, int maxSize) {
+		this.g = g;
+		prepareBuffers(g.size());
+		startResult(res, g.size());
+		addToResult(res, source);
+		touch(source);
+		activate(source);
+		swapFrontier();
+		while (frontierSize > 0) {
+			if (resultSize + frontierSize > maxSize)
+				return -1;
+			for (int k = 0; k < frontierSize; ++k)
+				addToResult(res, frontier[k]);
+			for (int k = 0; k < frontierSize; ++k)
+				activate(frontier[k]);
+			swapFrontier();
+		}
+		return resultSize;
+	}
+	
+	/**
+	 * The edge also changes the in-degree, and thus the threshold, of its target,
+	 * which matters for every diffusion reaching one of its in-neighbours.
+	 */
+	@Override
+	public Coalition getAffectedBy(Edge e, Graph g) {
+		Coalition res = super.getAffectedBy(e, g);
+		res.add(g.getPreds(e.j()));
+		if (!e.isDirected())
+			res.add(g.getPreds(e.i()));
+		return res;
+	}
+	
+	@Override
+	public LiveEdgeSample sampleLiveEdges(Graph g) {
+		return LiveEdgeSample.linearThreshold(g, getRandom());
+	}
+	
+	@Override
+	public boolean supportsReverseSampling() {
+		return true;
+	}
+	
+	/**
+	 * In the live-edge representation every node has at most one live incoming edge,
+	 * so the reverse-reachable set is a random backward walk.
+	 */
+	@Override
+	public boolean sampleReverseReachable(int root, Graph g, Coalition allowed, ReverseReachableSet res) {
+		res.reset(root);
+		int i = root;
+		while (g.getInDegree(i) > 0) {
+			i = g.getPreds(i).stream().skip(getRandom().nextInt(g.getInDegree(i))).findFirst().getAsInt();
+			if (!allowed.contains(i) || !res.add(i))
+				break;
+		}
+		return true;
+	}
+	
 	@Override
 	protected boolean diffusionFinished() {
 		return finished;
@@ -67,21 +143,68 @@ public class LinearThresholdModel extends EpidemicModel {
 	@Override
 	protected Coalition executeOneStep() {
 		Coalition newlyInfected = new Coalition();
-		Coalition newlyInHalo = new Coalition();
-		for (int i : halo)
-			if ((double)infectedNeighs[i] / g.getInDegree(i) > thresholds[i]) {
-				newlyInfected.add(i);
-				for (int j : g.getSuccs(i)) {
-					++infectedNeighs[j];
-					newlyInHalo.add(j);
-				}
-			}
+		for (int k = 0; k < frontierSize; ++k)
+			newlyInfected.add(frontier[k]);
+		infected.add(newlyInfected);
+		for (int k = 0; k < frontierSize; ++k)
+			activate(frontier[k]);
 		if (newlyInfected.isEmpty())
 			finished = true;
-		infected.add(newlyInfected);
-		halo.add(newlyInHalo);
-		halo.remove(infected);
+		swapFrontier();
 		diffusionRounds = t + 1;
 		return newlyInfected;
 	}
+	
+	/**
+	 * Informs all successors of i about its activation, queuing those that reach their threshold.
+	 */
+	private void activate(int i) {
+		for (int j : g.getSuccs(i)) {
+			if (!touched[j]) {
+				touch(j);
+				remaining[j] = requiredNeighs(j);
+			}
+			if (remaining[j] > 0 && --remaining[j] == 0)
+				next[nextSize++] = j;
+		}
+	}
+	
+	/**
+	 * Number of infected neighbours needed for infectedNeighs / inDegree to exceed a random threshold.
+	 */
+	private int requiredNeighs(int j) {
+		return (int)Math.floor(getRandom().nextDouble() * g.getInDegree(j)) + 1;
+	}
+	
+	private void touch(int i) {
+		touched[i] = true;
+		touchedNodes[touchedCount++] = i;
+	}
+	
+	/**
+	 * Allocates the buffers of the cascade, reusing them if the graph has the same size. Only the nodes touched
+	 * by the previous cascade are reset.
+	 */
+	private void prepareBuffers(int n) {
+		if (touched == null || touched.length != n) {
+			remaining = new int[n];
+			touched = new boolean[n];
+			touchedNodes = new int[n];
+			frontier = new int[n];
+			next = new int[n];
+		} else
+			for (int k = 0; k < touchedCount; ++k)
+				touched[touchedNodes[k]] = false;
+		touchedCount = 0;
+		frontierSize = 0;
+		nextSize = 0;
+	}
+	
+	private void swapFrontier() {
+		int[] tmp = frontier;
+		frontier = next;
+		frontierSize = nextSize;
+		next = tmp;
+		nextSize = 0;
+	}
 }
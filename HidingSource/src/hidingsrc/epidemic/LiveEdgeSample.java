@@ -0,0 +1,265 @@
+package hidingsrc.epidemic;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import hidingsrc.core.Coalition;
+import hidingsrc.core.Graph;
+
+/**
+ * Randomly sampled "live-edge" subgraph of a graph. For models with a live-edge representation, the set of
+ * nodes reachable from the source in such a subgraph is distributed exactly like the result of the diffusion,
+ * so a single sample can be shared by simulations from all possible sources.
+ * 
+@inproceedings{kempe2003maximizing,
+  title={Maximizing the spread of influence through a social network},
+  author={Kempe, David and Kleinberg, Jon and Tardos, {\'E}va},
+  booktitle={Proceedings of the ninth ACM SIGKDD international conference on Knowledge discovery and data mining},
+  pages={137--146},
+  year={2003}
+}
+ * 
+ * Nodes are stored in the CSR format. For unbounded reachability the sample is condensed into strongly
+ * connected components, whose members share the same reachable set.
+ * 
+ * @author Marcin Waniek
+ */
+public class LiveEdgeSample {
+
+	private int n;
+	private int[] offsets;
+	private int[] targets;
+	
+	private Coalition marked;
+	private int[] stamp;
+	private int currentStamp;
+	private int[] queue;
+	private int[] depth;
+	
+	private int[] component;
+	private int components;
+	private int[] compOffsets;
+	private int[] compTargets;
+	private int[] compSize;
+	private int[] compMarked;
+	
+	private LiveEdgeSample(int n, int[] offsets, int[] targets) {
+		this.n = n;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.marked = null;
+		this.stamp = new int[n];
+		this.currentStamp = 0;
+		this.queue = new int[n];
+		this.depth = new int[n];
+		this.component = null;
+	}
+	
+	/**
+	 * Every edge is live independently with a given probability (independent cascade).
+	 */
+	public static LiveEdgeSample independentCascade(Graph g, double prob, SplittableRandom rand) {
+		int[] offsets = new int[g.size() + 1];
+		int[] targets = new int[16];
+		int size = 0;
+		for (int i : g.nodes()) {
+			for (int j : g.getSuccs(i))
+				if (rand.nextDouble() <= prob) {
+					if (size == targets.length)
+						targets = Arrays.copyOf(targets, 2 * size);
+					targets[size++] = j;
+				}
+			offsets[i + 1] = size;
+		}
+		return new LiveEdgeSample(g.size(), offsets, targets);
+	}
+	
+	/**
+	 * Every node with incoming edges selects exactly one of them, uniformly at random
+	 * (linear threshold with uniform thresholds and weights 1 / in-degree).
+	 */
+	public static LiveEdgeSample linearThreshold(Graph g, SplittableRandom rand) {
+		int[] chosen = new int[g.size()];
+		int[] offsets = new int[g.size() + 1];
+		for (int j : g.nodes()) {
+			chosen[j] = -1;
+			if (g.getInDegree(j) > 0) {
+				chosen[j] = g.getPreds(j).stream().skip(rand.nextInt(g.getInDegree(j))).findFirst().getAsInt();
+				++offsets[chosen[j] + 1];
+			}
+		}
+		for (int i = 0; i < g.size(); ++i)
+			offsets[i + 1] += offsets[i];
+		int[] targets = new int[offsets[g.size()]];
+		int[] fill = Arrays.copyOf(offsets, g.size());
+		for (int j = 0; j < g.size(); ++j)
+			if (chosen[j] >= 0)
+				targets[fill[chosen[j]]++] = j;
+		return new LiveEdgeSample(g.size(), offsets, targets);
+	}
+	
+	public int size() {
+		return n;
+	}
+	
+	/**
+	 * Sets the group of nodes that is counted separately by reach methods.
+	 */
+	public void setMarked(Coalition marked) {
+		this.marked = marked;
+		if (component != null)
+			countMarkedInComponents();
+	}
+	
+	public int getComponent(int v) {
+		if (component == null)
+			condense();
+		return component[v];
+	}
+	
+	public int componentsCount() {
+		if (component == null)
+			condense();
+		return components;
+	}
+	
+	/**
+	 * Number of nodes reachable from source in at most maxDepth live edges, and the number of marked ones among them.
+	 */
+	public int[] reach(int source, int maxDepth) {
+		if (maxDepth == Integer.MAX_VALUE)
+			return reachComponent(getComponent(source));
+		int reached = 0;
+		int reachedMarked = 0;
+		++currentStamp;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = source;
+		stamp[source] = currentStamp;
+		depth[source] = 0;
+		while (head < tail) {
+			int i = queue[head++];
+			++reached;
+			if (marked != null && marked.contains(i))
+				++reachedMarked;
+			if (depth[i] < maxDepth)
+				for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+					int j = targets[k];
+					if (stamp[j] != currentStamp) {
+						stamp[j] = currentStamp;
+						depth[j] = depth[i] + 1;
+						queue[tail++] = j;
+					}
+				}
+		}
+		return new int[] {reached, reachedMarked};
+	}
+	
+	/**
+	 * Number of nodes reachable from any node of a strongly connected component, and the number of marked ones.
+	 */
+	public int[] reachComponent(int c) {
+		if (component == null)
+			condense();
+		int reached = 0;
+		int reachedMarked = 0;
+		++currentStamp;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = c;
+		stamp[c] = currentStamp;
+		while (head < tail) {
+			int d = queue[head++];
+			reached += compSize[d];
+			reachedMarked += compMarked[d];
+			for (int k = compOffsets[d]; k < compOffsets[d + 1]; ++k) {
+				int e = compTargets[k];
+				if (stamp[e] != currentStamp) {
+					stamp[e] = currentStamp;
+					queue[tail++] = e;
+				}
+			}
+		}
+		return new int[] {reached, reachedMarked};
+	}
+	
+	/**
+	 * Iterative Tarjan's algorithm, followed by building the condensation DAG.
+	 */
+	private void condense() {
+		component = new int[n];
+		Arrays.fill(component, -1);
+		int[] index = new int[n];
+		int[] low = new int[n];
+		Arrays.fill(index, -1);
+		int[] stack = new int[n];
+		boolean[] onStack = new boolean[n];
+		int stackSize = 0;
+		int[] callStack = new int[n];
+		int[] edgePos = new int[n];
+		int nextIndex = 0;
+		components = 0;
+		for (int root = 0; root < n; ++root) {
+			if (index[root] >= 0)
+				continue;
+			int callSize = 0;
+			callStack[callSize++] = root;
+			index[root] = low[root] = nextIndex++;
+			edgePos[root] = offsets[root];
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (callSize > 0) {
+				int i = callStack[callSize - 1];
+				if (edgePos[i] < offsets[i + 1]) {
+					int j = targets[edgePos[i]++];
+					if (index[j] < 0) {
+						index[j] = low[j] = nextIndex++;
+						edgePos[j] = offsets[j];
+						stack[stackSize++] = j;
+						onStack[j] = true;
+						callStack[callSize++] = j;
+					} else if (onStack[j])
+						low[i] = Math.min(low[i], index[j]);
+				} else {
+					--callSize;
+					if (callSize > 0)
+						low[callStack[callSize - 1]] = Math.min(low[callStack[callSize - 1]], low[i]);
+					if (low[i] == index[i]) {
+						int j;
+						do {
+							j = stack[--stackSize];
+							onStack[j] = false;
+							component[j] = components;
+						} while (j != i);
+						++components;
+					}
+				}
+			}
+		}
+		compSize = new int[components];
+		compOffsets = new int[components + 1];
+		for (int i = 0; i < n; ++i) {
+			++compSize[component[i]];
+			for (int k = offsets[i]; k < offsets[i + 1]; ++k)
+				if (component[targets[k]] != component[i])
+					++compOffsets[component[i] + 1];
+		}
+		for (int c = 0; c < components; ++c)
+			compOffsets[c + 1] += compOffsets[c];
+		compTargets = new int[compOffsets[components]];
+		int[] fill = Arrays.copyOf(compOffsets, components);
+		for (int i = 0; i < n; ++i)
+			for (int k = offsets[i]; k < offsets[i + 1]; ++k)
+				if (component[targets[k]] != component[i])
+					compTargets[fill[component[i]]++] = component[targets[k]];
+		countMarkedInComponents();
+	}
+	
+	private void countMarkedInComponents() {
+		compMarked = new int[components];
+		if (marked != null)
+			for (int i : marked)
+				if (i < n)
+					++compMarked[component[i]];
+	}
+}
@@ -0,0 +1,56 @@
+package hidingsrc.epidemic;
+
+import java.util.Arrays;
+
+/**
+ * Set of nodes from which a diffusion would reach a given root, filled by EpidemicModel.sampleReverseReachable.
+ * Membership is tracked with stamps, so clearing the set costs nothing and memory is reused between samples.
+ * 
+ * @author Marcin Waniek
+ */
+public class ReverseReachableSet {
+
+	private int[] nodes;
+	private int size;
+	private int[] stamp;
+	private int currentStamp;
+	
+	public ReverseReachableSet(int n) {
+		this.nodes = new int[16];
+		this.size = 0;
+		this.stamp = new int[n];
+		this.currentStamp = 1;
+	}
+	
+	public void reset(int root) {
+		if (root >= stamp.length)
+			stamp = Arrays.copyOf(stamp, Math.max(root + 1, 2 * stamp.length));
+		size = 0;
+		++currentStamp;
+		add(root);
+	}
+	
+	public boolean add(int v) {
+		if (contains(v))
+			return false;
+		if (v >= stamp.length)
+			stamp = Arrays.copyOf(stamp, Math.max(v + 1, 2 * stamp.length));
+		stamp[v] = currentStamp;
+		if (size == nodes.length)
+			nodes = Arrays.copyOf(nodes, 2 * size);
+		nodes[size++] = v;
+		return true;
+	}
+	
+	public boolean contains(int v) {
+		return v < stamp.length && stamp[v] == currentStamp;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int get(int k) {
+		return nodes[k];
+	}
+}
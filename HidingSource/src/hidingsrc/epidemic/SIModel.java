@@ -1,7 +1,9 @@
 package hidingsrc.epidemic;
 
+import java.util.SplittableRandom;
+
 import hidingsrc.core.Coalition;
-import hidingsrc.utils.Utils;
+import hidingsrc.core.Graph;
 
 /**
  * Susceptible-Infected epidemic diffusion model.
@@ -26,6 +28,87 @@ public class SIModel extends EpidemicModel {
 	public double getBasicProbability() {
 		return infectionProb;
 	}
+	
+	@Override
+	public EpidemicModel copy() {
+		return new SIModel(infectionProb, diffusionRounds);
+	}
+
+	/**
+	 * Only a single round of SI diffusion is an independent cascade.
+	 */
+	@Override
+	public LiveEdgeSample sampleLiveEdges(Graph g) {
+		return diffusionRounds <= 1 ? LiveEdgeSample.independentCascade(g, infectionProb, getRandom()) : null;
+	}
+	
+	@Override
+	public int getLiveEdgeDepth() {
+		return diffusionRounds;
+	}
+
+	/**
+	 * The infected nodes are listed in resultNodes in the order of infection, the nodes infected in previous
+	 * rounds being a prefix of it.
+	 */
+	@Override
+	public int runDiffusion(int source, Graph g, long[] res, int maxSize) {
+		SplittableRandom rand = getRandom();
+		startResult(res, g.size());
+		addToResult(res, source);
+		int roundStart = 0;
+		for (int round = 0; round < getRoundsLimit() && (retriesInfection() || roundStart < resultSize); ++round) {
+			int roundEnd = resultSize;
+			for (int k = retriesInfection() ? 0 : roundStart; k < roundEnd; ++k)
+				for (int j : g.getSuccs(resultNodes[k]))
+					if ((res[j >>> 6] & (1L << j)) == 0 && rand.nextDouble() <= infectionProb) {
+						if (resultSize == maxSize)
+							return -1;
+						addToResult(res, j);
+					}
+			roundStart = roundEnd;
+		}
+		return resultSize;
+	}
+
+	@Override
+	public boolean supportsReverseSampling() {
+		return true;
+	}
+
+	/**
+	 * Since infection attempts are memoryless, running the diffusion backwards from the root
+	 * gives the same distribution of infection paths as running it forwards.
+	 */
+	@Override
+	public boolean sampleReverseReachable(int root, Graph g, Coalition allowed, ReverseReachableSet res) {
+		SplittableRandom rand = getRandom();
+		res.reset(root);
+		int roundStart = 0;
+		for (int round = 0; round < getRoundsLimit() && (retriesInfection() || roundStart < res.size()); ++round) {
+			int roundEnd = res.size();
+			for (int k = retriesInfection() ? 0 : roundStart; k < roundEnd; ++k)
+				for (int i : g.getPreds(res.get(k)))
+					if (!res.contains(i) && allowed.contains(i) && rand.nextDouble() <= infectionProb)
+						res.add(i);
+			roundStart = roundEnd;
+		}
+		return true;
+	}
+	
+	/**
+	 * Number of rounds of the diffusion, in either direction.
+	 */
+	protected int getRoundsLimit() {
+		return diffusionRounds;
+	}
+	
+	/**
+	 * Whether infected nodes keep trying to infect their neighbours in every round.
+	 */
+	protected boolean retriesInfection() {
+		return true;
+	}
 
 	@Override
 	protected Coalition executeOneStep() {
@@ -36,9 +119,10 @@ public class SIModel extends EpidemicModel {
 	
 	protected Coalition getNewlyInfected() {
 		Coalition res = new Coalition();
+		SplittableRandom rand = getRandom();
 		for (int i : infected)
 			for (int j : g.getSuccs(i))
-				if (!infected.contains(j) && Utils.RAND.nextDouble() <= infectionProb)
+				if (!infected.contains(j) && rand.nextDouble() <= infectionProb)
 					res.add(j);
 		return res;
 	}
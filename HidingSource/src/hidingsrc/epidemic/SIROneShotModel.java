@@ -33,6 +33,11 @@ public class SIROneShotModel extends SIModel {
 		return "SIR-OneShot-" + (int)(infectionProb * 100);
 	}
 	
+	@Override
+	public EpidemicModel copy() {
+		return new SIROneShotModel(infectionProb);
+	}
+	
 	public Coalition getRecovered() {
 		return recovered;
 	}
@@ -43,6 +48,26 @@ public class SIROneShotModel extends SIModel {
 		this.recovered = new Coalition();
 	}
 	
+	@Override
+	public LiveEdgeSample sampleLiveEdges(Graph g) {
+		return LiveEdgeSample.independentCascade(g, infectionProb, getRandom());
+	}
+	
+	@Override
+	public int getLiveEdgeDepth() {
+		return Integer.MAX_VALUE;
+	}
+	
+	@Override
+	protected int getRoundsLimit() {
+		return Integer.MAX_VALUE;
+	}
+	
+	@Override
+	protected boolean retriesInfection() {
+		return false;
+	}
+	
 	@Override
 	protected boolean diffusionFinished() {
 		return infected.isEmpty();
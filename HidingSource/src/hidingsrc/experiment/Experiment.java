@@ -1,6 +1,7 @@
 package hidingsrc.experiment;
 
 import java.util.List;
+import java.util.SplittableRandom;
 
 import hidingsrc.utils.Utils;
 
@@ -12,9 +13,11 @@ import hidingsrc.utils.Utils;
 public abstract class Experiment {
 	
 	private String resultsDirPath;
+	protected SplittableRandom rand;
 	
 	public Experiment(String resultsDirPath){
 		this.resultsDirPath = resultsDirPath;
+		this.rand = Utils.split();
 	}
 
 	public abstract String getName();
@@ -30,7 +33,13 @@ public abstract class Experiment {
 		long time = System.currentTimeMillis();
 		
 		ExperimentResult res = new ExperimentResult(getName(), resultsDirPath, getHeader(), getColumnNames());
-		perform(res);
+		SplittableRandom threadRand = Utils.rand();
+		Utils.setRandom(rand);
+		try {
+			perform(res);
+		} finally {
+			Utils.setRandom(threadRand);
+		}
 		if (!res.getRows().isEmpty())
 			res.saveResult();
 		
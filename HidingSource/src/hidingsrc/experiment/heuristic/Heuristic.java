@@ -1,7 +1,10 @@
 package hidingsrc.experiment.heuristic;
 
+import java.util.SplittableRandom;
+
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
+import hidingsrc.utils.Utils;
 
 /**
  * Heuristic algorithm of hiding the source of diffusion.
@@ -9,18 +12,43 @@ import hidingsrc.core.Graph;
  * @author Marcin Waniek
  */
 public abstract class Heuristic {
+	
+	private SplittableRandom rand;
 
 	public abstract String getName();
 	public abstract String getType();
 	public abstract Graph hideEvader(Graph g, int evader, Coalition infected, int step);
 	
 	/**
-	 * Potentially more efficient implementation of performing multiple steps at the same time.
+	 * New instance of the same heuristic, which can be used in another thread. It has no random generator
+	 * of its own and keeps no state of a hiding in progress.
+	 */
+	public abstract Heuristic copy();
+	
+	/**
+	 * Potentially more efficient implementation of performing multiple steps at the same time. By default
+	 * the steps are performed one by one, as a single batch of changes of the graph (see Graph.beginBatch).
 	 */
 	public Graph hideEvaderMultipleSteps(Graph g, int evader, Coalition infected, int lastStep, int k) {
 		Graph res = g;
-		for (int step = lastStep - k + 1; step <= lastStep; ++step)
-			res = hideEvader(res, evader, infected, step);
+		g.beginBatch();
+		try {
+			for (int step = lastStep - k + 1; step <= lastStep; ++step)
+				res = hideEvader(res, evader, infected, step);
+		} finally {
+			g.endBatch();
+		}
 		return res;
 	}
+	
+	/**
+	 * Random generator used by the heuristic, the generator of the current thread if none was set.
+	 */
+	public SplittableRandom getRandom() {
+		return rand != null ? rand : Utils.rand();
+	}
+	
+	public void setRandom(SplittableRandom rand) {
+		this.rand = rand;
+	}
 }
@@ -14,7 +14,7 @@ public abstract class BotHeuristic extends Heuristic {
 	protected Coalition bots;
 	protected Coalition contacts;
 	protected int linksToContacts;
-	private boolean connectClique;
+	protected boolean connectClique;
 		
 	public BotHeuristic(int linksToContacts, boolean connectClique) {
 		this.bots = null;
@@ -40,23 +40,28 @@ public abstract class BotHeuristic extends Heuristic {
 		return hideEvaderMultipleSteps(g, evader, infected, step, 1);
 	}
 	
+	/**
+	 * Bots are added to the graph itself, so that they are removed by resetting it. All k bots are added before
+	 * any of them is connected.
+	 */
 	@Override
 	public Graph hideEvaderMultipleSteps(Graph g, int evader, Coalition infected, int lastStep, int k) {
-		Graph ag = g.addNodes(k);
+		int firstBot = g.size();
+		g.addNodes(k);
 		for (int j = 0; j < k; ++j) {
 			int step = lastStep - k + 1 + j;
 			if (step == 1) {
 				bots = new Coalition();
 				contacts = getContacts(g, evader, infected);
 			}
-			int newBot = g.size() + j;	
+			int newBot = firstBot + j;
 			if (connectClique)
-				bots.forEach(v -> ag.addEdge(v, newBot)); 
+				bots.forEach(v -> g.addEdge(v, newBot)); 
 			bots.add(newBot);
 			infected.add(newBot);
-			connectBot(ag, evader, newBot, step);
+			connectBot(g, evader, newBot, step);
 		}	
-		return ag;
+		return g;
 	}
 	
 	protected Coalition getContacts(Graph g, int evader, Coalition infected) {
@@ -33,4 +33,9 @@ public class DegreeBotHeuristic extends BotHeuristic {
 	private List<Integer> computeContactsRank(Graph ag){
 		return new Ranking<>(contacts, i -> ag.getDegree(i)).getList();
 	}
+	
+	@Override
+	public DegreeBotHeuristic copy() {
+		return new DegreeBotHeuristic(linksToContacts, connectClique);
+	}
 }
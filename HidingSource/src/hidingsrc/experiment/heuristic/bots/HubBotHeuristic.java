@@ -29,4 +29,9 @@ public class HubBotHeuristic extends BotHeuristic {
 					.collect(Coalition.getCollector());
 		hubs.forEach(hub -> ag.addEdge(bot, hub));
 	}
+	
+	@Override
+	public HubBotHeuristic copy() {
+		return new HubBotHeuristic(linksToContacts, connectClique);
+	}
 }
@@ -15,6 +15,11 @@ public class RandomBotHeuristic extends BotHeuristic {
 
 	@Override
 	protected void connectBot(Graph ag, int evader, int bot, int step) {
-		contacts.getRandom(linksToContacts).forEach(i -> ag.addEdge(bot, i));
+		contacts.getRandom(linksToContacts, getRandom()).forEach(i -> ag.addEdge(bot, i));
+	}
+	
+	@Override
+	public RandomBotHeuristic copy() {
+		return new RandomBotHeuristic(linksToContacts, connectClique);
 	}
 }
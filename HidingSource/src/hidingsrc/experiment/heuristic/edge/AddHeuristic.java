@@ -11,6 +11,9 @@ import hidingsrc.utils.Utils;
  */
 public abstract class AddHeuristic extends EdgeHeuristic {
 
+	@Override
+	public abstract AddHeuristic copy();
+	
 	@Override
 	public String getType() {
 		return "edge-add";
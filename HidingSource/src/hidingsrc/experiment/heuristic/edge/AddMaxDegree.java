@@ -19,4 +19,9 @@ public class AddMaxDegree extends AddHeuristic {
 	protected double score(int i, Graph g, int evader, Coalition infected) {
 		return g.getDegree(i);
 	}
+	
+	@Override
+	public AddMaxDegree copy() {
+		return new AddMaxDegree();
+	}
 }
@@ -19,4 +19,9 @@ public class AddMinDegree extends AddHeuristic {
 	protected double score(int i, Graph g, int evader, Coalition infected) {
 		return -g.getDegree(i);
 	}
+	
+	@Override
+	public AddMinDegree copy() {
+		return new AddMinDegree();
+	}
 }
@@ -1,11 +1,14 @@
 package hidingsrc.experiment.heuristic.edge;
 
+import java.util.SplittableRandom;
+
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
 import hidingsrc.experiment.heuristic.Heuristic;
 
 /**
  * Hiding the source of diffusion by mixing adding and removing edges.
+ * The heuristics are mixed through private copies, which use the random generator of the mix.
  * 
  * @author Marcin Waniek
  */
@@ -15,8 +18,8 @@ public class MixHeuristic extends Heuristic {
 	private AddHeuristic addHeur;
 	
 	public MixHeuristic(RemoveHeuristic remHeur, AddHeuristic addHeur) {
-		this.remHeur = remHeur;
-		this.addHeur = addHeur;
+		this.remHeur = remHeur.copy();
+		this.addHeur = addHeur.copy();
 	}
 
 	@Override
@@ -29,6 +32,13 @@ public class MixHeuristic extends Heuristic {
 		return "edge-mix";
 	}
 
+	@Override
+	public void setRandom(SplittableRandom rand) {
+		super.setRandom(rand);
+		remHeur.setRandom(rand);
+		addHeur.setRandom(rand);
+	}
+
 	@Override
 	public Graph hideEvader(Graph g, int evader, Coalition infected, int step) {
 		if (!g.isRecordingHistory())
@@ -39,4 +49,9 @@ public class MixHeuristic extends Heuristic {
 			addHeur.hideEvader(g, evader, infected, step);
 		return g;
 	}
+
+	@Override
+	public MixHeuristic copy() {
+		return new MixHeuristic(remHeur, addHeur);
+	}
 }
@@ -42,4 +42,9 @@ public class ROAM extends Heuristic {
 			}
 		return g;
 	}
+	
+	@Override
+	public ROAM copy() {
+		return new ROAM(edgesToAdd);
+	}
 }
@@ -11,6 +11,9 @@ import hidingsrc.utils.Utils;
  */
 public abstract class RemoveHeuristic extends EdgeHeuristic {
 	
+	@Override
+	public abstract RemoveHeuristic copy();
+	
 	@Override
 	public String getType() {
 		return "edge-rem";
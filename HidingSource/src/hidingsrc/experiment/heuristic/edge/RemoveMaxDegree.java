@@ -19,4 +19,9 @@ public class RemoveMaxDegree extends RemoveHeuristic {
 	protected double score(int i, Graph g, int evader, Coalition infected) {
 		return g.getDegree(i);
 	}
+	
+	@Override
+	public RemoveMaxDegree copy() {
+		return new RemoveMaxDegree();
+	}
 }
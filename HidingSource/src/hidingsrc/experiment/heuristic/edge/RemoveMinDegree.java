@@ -19,4 +19,9 @@ public class RemoveMinDegree extends RemoveHeuristic {
 	protected double score(int i, Graph g, int evader, Coalition infected) {
 		return -g.getDegree(i);
 	}
+	
+	@Override
+	public RemoveMinDegree copy() {
+		return new RemoveMinDegree();
+	}
 }
@@ -2,7 +2,6 @@ package hidingsrc.experiment.heuristic.edge;
 
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
-import hidingsrc.utils.Utils;
 
 public class RemoveRandom extends RemoveHeuristic {
 	
@@ -13,6 +12,11 @@ public class RemoveRandom extends RemoveHeuristic {
 
 	@Override
 	protected double score(int i, Graph g, int evader, Coalition infected) {
-		return Utils.RAND.nextDouble();
+		return getRandom().nextDouble();
+	}
+	
+	@Override
+	public RemoveRandom copy() {
+		return new RemoveRandom();
 	}
 }
@@ -46,6 +46,7 @@ public class DistanceHidingSourceExperiment extends HidingSourceExperiment {
 	protected void perform(ExperimentResult res) {
 		Coalition evaders = selectPotentialEvaders(g).getRandom(evadersNumber);
 		for (int evader : evaders) {
+			splitRandom();
 			Coalition infected = generateInfected(g, evader);
 			preprocess(evaders, infected);
 			Map<ScoringSourceDetectionAlgorithm, Integer> rankBefore = new HashMap<>();
@@ -46,6 +46,7 @@ public class DurationHidingSourceExperiment extends HidingSourceExperiment {
 		Coalition evaders = selectPotentialEvaders(g).getRandom(evadersNumber);
 		for (int evader : evaders)
 			for (int rounds = roundsFrom; rounds <= roundsTo; rounds += roundsBy){
+				splitRandom();
 				model.setDiffusionRounds(rounds);
 				Coalition infected = generateInfected(g, evader);
 				preprocess(evaders, infected);
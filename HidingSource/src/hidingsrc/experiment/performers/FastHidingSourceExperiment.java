@@ -2,6 +2,7 @@ package hidingsrc.experiment.performers;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
@@ -11,12 +12,27 @@ import hidingsrc.experiment.heuristic.Heuristic;
 import hidingsrc.srcdetection.ScoringSourceDetectionAlgorithm;
 import hidingsrc.utils.Utils;
 
+/**
+ * Experiment with hiding the source of diffusion, where the rank of the evader is computed only against a part
+ * of the infected nodes. Either a fixed comparison group (nodes of the highest degree and random ones) is used,
+ * or, in the sampled mode, the rank is estimated from a growing random sample of the infected nodes, until
+ * the confidence interval of the estimate is narrow enough. The sample is doubled every time, and the interval
+ * follows from Serfling's inequality for sampling without replacement (the fraction of nodes scored higher than
+ * the evader), with the union bound over all doublings. The sample grows in place, so that detectors scoring
+ * the whole group at once (see MonteCarloSourceDetection.computeSingleScore) reuse the work done for its prefix.
+ * 
+ * @author Marcin Waniek
+ */
 public class FastHidingSourceExperiment extends HidingSourceExperiment {
 	
 	public static final int HD_COMP_SIZE = 6;
 	
+	protected static final int INITIAL_SAMPLE = 32;
+	
 	private Integer comparisonGroupSize;
 	private Coalition comparisonGroup;
+	private double rankWidth;
+	private double confidence;
 
 	public FastHidingSourceExperiment(String resultsDirPath, Graph g, EpidemicModel model,
 			Collection<ScoringSourceDetectionAlgorithm> algs, Collection<Heuristic> heurs, int hidingSteps,
@@ -24,6 +40,23 @@ public class FastHidingSourceExperiment extends HidingSourceExperiment {
 		super(resultsDirPath, g, model, algs, heurs, hidingSteps, evadersNumber, DEF_PERC, false, DEF_DESC);
 		this.comparisonGroup = null;
 		this.comparisonGroupSize = comparisonGroupSize;
+		this.rankWidth = 0.;
+		this.confidence = 0.;
+	}
+	
+	/**
+	 * Sampled mode, estimating the rank until its confidence interval at given level is at most rankWidth wide.
+	 */
+	public FastHidingSourceExperiment(String resultsDirPath, Graph g, EpidemicModel model,
+			Collection<ScoringSourceDetectionAlgorithm> algs, Collection<Heuristic> heurs, int hidingSteps,
+			int evadersNumber, boolean recordAll, double rankWidth, double confidence) {
+		this(resultsDirPath, g, model, algs, heurs, hidingSteps, evadersNumber, recordAll, 0);
+		this.rankWidth = rankWidth;
+		this.confidence = confidence;
+	}
+	
+	private boolean isSampled() {
+		return rankWidth > 0.;
 	}
 	
 	@Override
@@ -33,11 +66,20 @@ public class FastHidingSourceExperiment extends HidingSourceExperiment {
 	
 	@Override
 	protected List<String> getHeader() {
-		return Utils.concat(super.getHeader(), Utils.aList(comparisonGroupSize.toString()));
+		return Utils.concat(super.getHeader(), Utils.aList(isSampled()
+				? "ci-" + rankWidth + "-" + confidence : comparisonGroupSize.toString()));
+	}
+	
+	@Override
+	protected List<String> getRankingColumnNames() {
+		return isSampled() ? Utils.aList("ranking", "rankLow", "rankHigh", "sampleSize")
+				: super.getRankingColumnNames();
 	}
 	
 	@Override
 	protected void preprocess(Coalition evaders, Coalition infected) {
+		if (isSampled())
+			return;
 		comparisonGroup = infected.stream().boxed().sorted((i,j) -> Integer.compare(g.getDegree(j), g.getDegree(i)))
 				.limit(comparisonGroupSize).collect(Coalition.getCollector());
 		comparisonGroup.add(infected.stream().filter(i -> !comparisonGroup.contains(i)).boxed()
@@ -50,4 +92,39 @@ public class FastHidingSourceExperiment extends HidingSourceExperiment {
 		return new Ranking<>(comparisonGroup, i -> alg.computeSingleScore(i, infected, g, comparisonGroup))
 				.getExAequoPosition(evader, DELTA);
 	}
+	
+	/**
+	 * In the sampled mode, the estimated rank with the bounds of its confidence interval and the sample size.
+	 */
+	@Override
+	protected List<Object> rankingColumns(ScoringSourceDetectionAlgorithm alg, Graph g, Coalition infected,
+			int evader) {
+		if (!isSampled())
+			return super.rankingColumns(alg, g, infected, evader);
+		List<Integer> others = infected.stream().filter(i -> i != evader).boxed().collect(Collectors.toList());
+		Utils.shuffle(others, Utils.rand());
+		int n = others.size();
+		if (n == 0)
+			return Utils.<Object>aList(1., 1., 1., 0);
+		int checks = 1;
+		for (int m = Math.min(INITIAL_SAMPLE, n); m < n; m *= 2)
+			++checks;
+		double logTerm = Math.log(2. * checks / (1. - confidence));
+		int m = Math.min(INITIAL_SAMPLE, n);
+		Coalition group = new Coalition(evader);
+		while (true) {
+			for (int k = group.size() - 1; k < m; ++k)
+				group.add(others.get(k));
+			double evaderScore = alg.computeSingleScore(evader, infected, g, group);
+			int higher = (int)others.subList(0, m).stream()
+					.filter(i -> alg.computeSingleScore(i, infected, g, group) > evaderScore + DELTA).count();
+			double frac = (double)higher / m;
+			double radius = Math.sqrt(logTerm * (1. - (m - 1.) / n) / (2. * m));
+			double low = 1. + Math.max(higher, n * (frac - radius));
+			double high = 1. + Math.min(higher + n - m, n * (frac + radius));
+			if (high - low <= rankWidth || m == n)
+				return Utils.<Object>aList(1. + n * frac, low, high, m);
+			m = Math.min(2 * m, n);
+		}
+	}
 }
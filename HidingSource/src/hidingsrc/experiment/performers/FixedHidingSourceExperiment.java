@@ -38,6 +38,7 @@ public class FixedHidingSourceExperiment extends HidingSourceExperiment {
 
 	@Override
 	protected void perform(ExperimentResult res) {
+		splitRandom();
 		Map<ScoringSourceDetectionAlgorithm, Integer> ranksBefore = new HashMap<>();
 		for (ScoringSourceDetectionAlgorithm alg : algorithms)
 			ranksBefore.put(alg, rankingPosition(alg, g, infected, evader));
@@ -4,9 +4,11 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
+import hidingsrc.core.GraphBuilder;
 import hidingsrc.epidemic.EpidemicModel;
 import hidingsrc.experiment.ExperimentResult;
 import hidingsrc.experiment.heuristic.Heuristic;
@@ -45,10 +47,12 @@ public class FuzzyHidingSourceExperiment extends HidingSourceExperiment {
 		Coalition evaders = selectPotentialEvaders(g).getRandom(evadersNumber);
 		for (int evader : evaders)
 			for (int knowledge = knowledgeFrom; knowledge >= knowledgeTo; knowledge -= knowledgeBy){
+				splitRandom();
 				double visibleProb = knowledge / 100.;
+				SplittableRandom viewRand = Utils.rand().split();
 				Coalition infected = generateInfected(g, evader);
 				preprocess(evaders, infected);
-				Graph beforeView = generateView(visibleProb, g);
+				Graph beforeView = generateView(visibleProb, g, viewRand);
 				Map<ScoringSourceDetectionAlgorithm, Integer> ranksBefore = new HashMap<>();
 				for (ScoringSourceDetectionAlgorithm alg : algorithms)
 					ranksBefore.put(alg, alg.getRanking(infected, beforeView).getExAequoPosition(evader, DELTA));
@@ -56,8 +60,8 @@ public class FuzzyHidingSourceExperiment extends HidingSourceExperiment {
 					g.startRecordingHistory();
 					Coalition ainfected = new Coalition(infected);
 					Graph ag = h.hideEvaderMultipleSteps(g, evader, ainfected, hidingSteps, hidingSteps);
-					Graph heurView = generateView(visibleProb, ag);
-					Coalition infView = generateView(visibleProb, ainfected);
+					Graph heurView = generateView(visibleProb, ag, viewRand);
+					Coalition infView = generateView(visibleProb, ainfected, viewRand);
 					for (ScoringSourceDetectionAlgorithm alg : algorithms)
 						res.addRow(alg.getName(), evader, h.getName(), h.getType(), knowledge,
 								ranksBefore.get(alg), rankingPosition(alg, heurView, infView, evader));
@@ -66,14 +70,20 @@ public class FuzzyHidingSourceExperiment extends HidingSourceExperiment {
 			}
 	}
 	
-	protected Graph generateView(double visibleProb, Graph g) {
-		Graph view = new Graph(g);
-		g.edgesStream().filter(__ -> Utils.RAND.nextDouble() > visibleProb).forEach(e -> view.removeEdge(e));
-		return view;
+	/**
+	 * View of g with every edge visible with probability visibleProb, drawn from the given stream of the evader.
+	 */
+	protected Graph generateView(double visibleProb, Graph g, SplittableRandom rand) {
+		GraphBuilder view = new GraphBuilder(g.getName(), g.size(), g.isDirected());
+		g.edgesStream().filter(__ -> rand.nextDouble() <= visibleProb).forEach(e -> view.addEdge(e));
+		return view.build();
 	}
 	
-	protected Coalition generateView(double visibleProb, Coalition infected) {
-		return infected.stream().filter(__ -> Utils.RAND.nextDouble() <= visibleProb).boxed()
+	/**
+	 * View of infected with every node visible with probability visibleProb, drawn from the given stream of the evader.
+	 */
+	protected Coalition generateView(double visibleProb, Coalition infected, SplittableRandom rand) {
+		return infected.stream().filter(__ -> rand.nextDouble() <= visibleProb).boxed()
 				.collect(Coalition.getCollector());
 	}
 }
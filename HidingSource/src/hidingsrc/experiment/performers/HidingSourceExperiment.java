@@ -1,16 +1,24 @@
 package hidingsrc.experiment.performers;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
+import hidingsrc.core.GraphFork;
 import hidingsrc.epidemic.EpidemicModel;
 import hidingsrc.experiment.Experiment;
 import hidingsrc.experiment.ExperimentResult;
 import hidingsrc.experiment.heuristic.Heuristic;
+import hidingsrc.srcdetection.ConcurrentDetection;
+import hidingsrc.srcdetection.DetectionContext;
 import hidingsrc.srcdetection.ScoringSourceDetectionAlgorithm;
 import hidingsrc.utils.Utils;
 
@@ -43,6 +51,9 @@ public class HidingSourceExperiment extends Experiment {
 	protected Integer evaderPercentile;
 	protected boolean recordAll;
 	protected String desc;
+	protected int detectorThreads;
+	protected int heuristicThreads;
+	private ConcurrentDetection concurrent;
 	
 	public HidingSourceExperiment(String resultsDirPath, Graph g, EpidemicModel model,
 			Collection<ScoringSourceDetectionAlgorithm> algs, Collection<Heuristic> heurs, int hidingSteps,
@@ -57,6 +68,9 @@ public class HidingSourceExperiment extends Experiment {
 		this.evaderPercentile = evaderPercentile;
 		this.recordAll = recordAll;
 		this.desc = desc;
+		this.detectorThreads = 1;
+		this.heuristicThreads = 1;
+		this.concurrent = null;
 	}
 	
 	public HidingSourceExperiment(String resultsDirPath, Graph g, EpidemicModel model,
@@ -66,6 +80,26 @@ public class HidingSourceExperiment extends Experiment {
 				DEF_DESC);
 	}
 
+	/**
+	 * Number of threads running the detection algorithms of every recorded step concurrently, on a snapshot
+	 * of the graph (see ConcurrentDetection). With 1 thread the algorithms are run one after another on
+	 * the graph itself.
+	 */
+	public HidingSourceExperiment setDetectorThreads(int detectorThreads) {
+		this.detectorThreads = detectorThreads;
+		return this;
+	}
+
+	/**
+	 * Number of threads running the heuristics concurrently, each on its own fork of the graph (see Graph.fork)
+	 * with its own copies of the detection algorithms, run one after another. With 1 thread, or if some
+	 * algorithm cannot be copied, the heuristics are run one after another on the graph itself.
+	 */
+	public HidingSourceExperiment setHeuristicThreads(int heuristicThreads) {
+		this.heuristicThreads = heuristicThreads;
+		return this;
+	}
+
 	@Override
 	public String getName() {
 		return "hidingsrc-" + g.getName();
@@ -79,35 +113,109 @@ public class HidingSourceExperiment extends Experiment {
 
 	@Override
 	protected List<String> getColumnNames() {
-		return Utils.aList("algorithm", "evader", "heuristic", "heurType", "step", "ranking");
+		return Utils.concat(Utils.aList("algorithm", "evader", "heuristic", "heurType", "step"),
+				getRankingColumnNames());
+	}
+	
+	protected List<String> getRankingColumnNames() {
+		return Utils.aList("ranking");
 	}
 
 	@Override
 	protected void perform(ExperimentResult res) {
-		Coalition evaders = selectPotentialEvaders(g).getRandom(evadersNumber);
-		for (int evader : evaders) {
-			Coalition infected = generateInfected(g, evader);
-			preprocess(evaders, infected);
-			Map<ScoringSourceDetectionAlgorithm, Integer> ranksBefore = new HashMap<>();
-			for (ScoringSourceDetectionAlgorithm alg : algorithms)
-				ranksBefore.put(alg, rankingPosition(alg, g, infected, evader));
-			for (Heuristic h : heuristics) {
-				g.startRecordingHistory();
-				for (ScoringSourceDetectionAlgorithm alg : algorithms)
-					res.addRow(alg.getName(), evader, h.getName(), h.getType(), 0, ranksBefore.get(alg));
-				Graph ag = g;
-				Coalition ainfected = new Coalition(infected);
-				int deltaStep = Math.max(hidingSteps / 10, 1);
-				for (int step = deltaStep; step <= hidingSteps; step += deltaStep) {
-					ag = h.hideEvaderMultipleSteps(ag, evader, ainfected, step, deltaStep);
-					if (recordAll || step == hidingSteps)
-						for (ScoringSourceDetectionAlgorithm alg : algorithms)
-							res.addRow(alg.getName(), evader, h.getName(), h.getType(), step,
-									rankingPosition(alg, ag, ainfected, evader));
-				}
-				g.resetGraph();
+		if (detectorThreads > 1)
+			concurrent = new ConcurrentDetection(algorithms, detectorThreads);
+		ExecutorService forks = heuristicThreads > 1 && ConcurrentDetection.copies(algorithms) != null
+				? Executors.newFixedThreadPool(heuristicThreads) : null;
+		try {
+			Coalition evaders = selectPotentialEvaders(g).getRandom(evadersNumber);
+			for (int evader : evaders) {
+				splitRandom();
+				Coalition infected = generateInfected(g, evader);
+				preprocess(evaders, infected);
+				List<List<Object>> ranksBefore = rankingColumns(g, infected, evader);
+				if (forks != null)
+					for (List<Object[]> rows : hideOnForks(forks, evader, infected, ranksBefore))
+						rows.forEach(row -> res.addRow(row));
+				else
+					for (Heuristic h : heuristics) {
+						g.startRecordingHistory();
+						hide(h, g, evader, infected, ranksBefore, (ag, ainfected) -> rankingColumns(ag, ainfected, evader))
+								.forEach(row -> res.addRow(row));
+						g.resetGraph();
+					}
 			}
+		} finally {
+			if (concurrent != null)
+				concurrent.shutdown();
+			concurrent = null;
+			if (forks != null)
+				forks.shutdown();
+			DetectionContext.clear();
+		}
+	}
+	
+	/**
+	 * Rows of all recorded steps of hiding the evader with the heuristic, starting from graph g, which is changed
+	 * in place.
+	 */
+	private List<Object[]> hide(Heuristic h, Graph g, int evader, Coalition infected,
+			List<List<Object>> ranksBefore, BiFunction<Graph, Coalition, List<List<Object>>> ranking) {
+		List<Object[]> rows = new ArrayList<>();
+		addRows(rows, evader, h, 0, ranksBefore);
+		Graph ag = g;
+		Coalition ainfected = new Coalition(infected);
+		int deltaStep = Math.max(hidingSteps / 10, 1);
+		for (int step = deltaStep; step <= hidingSteps; step += deltaStep) {
+			ag = h.hideEvaderMultipleSteps(ag, evader, ainfected, step, deltaStep);
+			if (recordAll || step == hidingSteps)
+				addRows(rows, evader, h, step, ranking.apply(ag, ainfected));
+		}
+		return rows;
+	}
+	
+	/**
+	 * Rows of all heuristics, in the order of heuristics, each run in its own thread on its own fork of g (so g
+	 * itself is left untouched) with its own copies of the heuristic and the algorithms. The copy of the heuristic
+	 * takes over the random stream of the heuristic (see splitRandom), which is not used by anybody else.
+	 */
+	private List<List<Object[]>> hideOnForks(ExecutorService forks, int evader, Coalition infected,
+			List<List<Object>> ranksBefore) {
+		List<Callable<List<Object[]>>> tasks = new ArrayList<>();
+		for (Heuristic h : heuristics) {
+			Heuristic copy = h.copy();
+			copy.setRandom(h.getRandom());
+			List<ScoringSourceDetectionAlgorithm> algs = ConcurrentDetection.copies(algorithms);
+			SplittableRandom rand = Utils.rand().split();
+			tasks.add(() -> {
+				Utils.setRandom(rand);
+				GraphFork fork = g.fork();
+				fork.startRecordingHistory();
+				try {
+					return hide(copy, fork, evader, infected, ranksBefore, (ag, ainfected) -> algs.stream()
+							.map(alg -> rankingColumns(alg, ag, ainfected, evader)).collect(Collectors.toList()));
+				} finally {
+					DetectionContext.clear();
+				}
+			});
 		}
+		return ConcurrentDetection.invokeAll(forks, tasks);
+	}
+	
+	private void addRows(List<Object[]> rows, int evader, Heuristic h, int step, List<List<Object>> ranks) {
+		int k = 0;
+		for (ScoringSourceDetectionAlgorithm alg : algorithms)
+			rows.add(Utils.concat(Utils.<Object>aList(alg.getName(), evader, h.getName(), h.getType(), step),
+					ranks.get(k++)).toArray());
+	}
+	
+	/**
+	 * Ranking columns of all algorithms, in the order of algorithms.
+	 */
+	protected List<List<Object>> rankingColumns(Graph g, Coalition infected, int evader) {
+		if (concurrent != null)
+			return concurrent.run(g, infected, (alg, snapshot) -> rankingColumns(alg, snapshot, infected, evader));
+		return algorithms.stream().map(alg -> rankingColumns(alg, g, infected, evader)).collect(Collectors.toList());
 	}
 	
 	protected Coalition selectPotentialEvaders(Graph g) {
@@ -125,9 +233,30 @@ public class HidingSourceExperiment extends Experiment {
 		return res;
 	}
 	
+	/**
+	 * Gives the current thread, the diffusion model and every heuristic their own random stream
+	 * derived from the experiment stream, so that the results for each evader are reproducible.
+	 */
+	protected void splitRandom() {
+		SplittableRandom evaderRand = rand.split();
+		Utils.setRandom(evaderRand);
+		if (model != null)
+			model.setRandom(evaderRand.split());
+		for (Heuristic h : heuristics)
+			h.setRandom(evaderRand.split());
+	}
+	
 	protected void preprocess(Coalition evaders, Coalition infected) {}
 	
 	protected int rankingPosition(ScoringSourceDetectionAlgorithm alg, Graph g, Coalition infected, int evader) {
 		return alg.getRanking(infected, g).getExAequoPosition(evader, DELTA);
 	}
+	
+	/**
+	 * Values of the ranking columns of a single row.
+	 */
+	protected List<Object> rankingColumns(ScoringSourceDetectionAlgorithm alg, Graph g, Coalition infected,
+			int evader) {
+		return Utils.<Object>aList(rankingPosition(alg, g, infected, evader));
+	}
 }
@@ -62,6 +62,7 @@ public class ProfileHidingSourceExperiment extends HidingSourceExperiment {
 				Graph g = gs.generate(size, degree);
 				Coalition evaders = selectPotentialEvaders(g).getRandom(evadersNumber);
 				for (int evader : evaders) {
+					splitRandom();
 					Coalition infected = generateInfected(g, evader);
 					preprocess(evaders, infected);
 					Map<ScoringSourceDetectionAlgorithm, Integer> ranksBefore = new HashMap<>();
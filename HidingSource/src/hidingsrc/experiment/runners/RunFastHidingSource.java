@@ -19,13 +19,17 @@ import hidingsrc.utils.Utils;
 public class RunFastHidingSource extends RunHidingSource {
 	
 	protected static final int DEF_COMP_SIZE = 5000;
+	protected static final double DEF_CONFIDENCE = .95;
 
 	protected static final List<ScoringSourceDetectionAlgorithm> ALGORITHMS = Utils.aList(
 		new CentralitySourceDetection(new DegreeCentrality()),
 		new CentralitySourceDetection(new EigenvectorCentrality(.00001)),
 		new CentralitySourceDetection(new ClosenessCentrality()),
 		new CentralitySourceDetection(new RumorCentrality()),
-		new MonteCarloSourceDetection(EPIDEMIC_MODEL));
+		new MonteCarloSourceDetection(EPIDEMIC_MODEL),
+		new ReverseReachSourceDetection(EPIDEMIC_MODEL),
+		new JordanCenterSourceDetection(),
+		new PageRankSourceDetection());
 
 	public static void main(String[] args) {
 		int times = args.length > 0 ? Integer.parseInt(args[0]) : 1;
@@ -34,13 +38,16 @@ public class RunFastHidingSource extends RunHidingSource {
 		List<Heuristic> heurs = bots ? getBotHeuristics(3) : getEdgeHeuristics(false);
 		int steps = bots ? 50 : 5;
 		int alg = args.length > 3 ? Integer.parseInt(args[3]) % ALGORITHMS.size() : -1;
+		double rankWidth = args.length > 4 ? Double.parseDouble(args[4]) : 0.;
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+		int heurThreads = args.length > 6 ? Integer.parseInt(args[6]) : 1;
 		int avgDegree = 4;
 		
 		RunHidingSource r = new RunFastHidingSource();
 		
-		r.runErdosRenyi(n, avgDegree, times, heurs, steps, alg);
-		r.runSmallWorld(n, avgDegree, .25, times, heurs, steps, alg);
-		r.runBarabasiAlbert(n, avgDegree, times, heurs, steps, alg);
+		r.runErdosRenyi(n, avgDegree, times, heurs, steps, alg, rankWidth, threads, heurThreads);
+		r.runSmallWorld(n, avgDegree, .25, times, heurs, steps, alg, rankWidth, threads, heurThreads);
+		r.runBarabasiAlbert(n, avgDegree, times, heurs, steps, alg, rankWidth, threads, heurThreads);
 		
 		r.aggregateAll();
 	}
@@ -57,10 +64,18 @@ public class RunFastHidingSource extends RunHidingSource {
 		List<Heuristic> heurs = (List<Heuristic>) params[1];
 		int steps = (int)params[2];
 		int algInd = (int)params[3];
+		double rankWidth = (double)params[4];
+		int threads = (int)params[5];
+		int heurThreads = (int)params[6];
 		List<ScoringSourceDetectionAlgorithm> algs = algInd >= 0 ? ALGORITHMS.subList(algInd, algInd + 1) : ALGORITHMS;
-		new FastHidingSourceExperiment(getDataPath(g), g, EPIDEMIC_MODEL, algs, heurs, steps, EVADERS_NUM, true,
-						DEF_COMP_SIZE)
-				.perform();
+		if (rankWidth > 0.)
+			new FastHidingSourceExperiment(getDataPath(g), g, EPIDEMIC_MODEL, algs, heurs, steps, EVADERS_NUM, true,
+							rankWidth, DEF_CONFIDENCE)
+					.setDetectorThreads(threads).setHeuristicThreads(heurThreads).perform();
+		else
+			new FastHidingSourceExperiment(getDataPath(g), g, EPIDEMIC_MODEL, algs, heurs, steps, EVADERS_NUM, true,
+							DEF_COMP_SIZE)
+					.setDetectorThreads(threads).setHeuristicThreads(heurThreads).perform();
 	}
 	
 	@Override
@@ -394,6 +394,7 @@ public class RunHidingSource extends ExperimentRunner {
 		res.put("MonteCarlo", "#ff7f00");
 		res.put("RandomWalk", "#eeee33");
 		res.put("Betweenness", "#a65628");
+		res.put("ReverseReach", "#f781bf");
 		return res;
 	}
 	
@@ -1,9 +1,13 @@
 package hidingsrc.srcdetection;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 import hidingsrc.centrality.Centrality;
+import hidingsrc.centrality.OnlineCentrality;
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Graph;
-import hidingsrc.core.LWGraph;
+import hidingsrc.core.SubgraphView;
 import hidingsrc.utils.Utils;
 
 /**
@@ -14,12 +18,25 @@ import hidingsrc.utils.Utils;
 public class CentralitySourceDetection extends ScoringSourceDetectionAlgorithm {
 
 	private Centrality c;
-	private LWGraph<Integer,Void> ig;
-	
+	private Centrality full;
+	private AtomicReference<WholeGraphValues> shared;
+	private SubgraphView ig;
+	private OnlineCentrality online;
 	
 	public CentralitySourceDetection(Centrality c) {
+		this(c, c.copy(), new AtomicReference<>());
+	}
+	
+	/**
+	 * Algorithm using centrality c on induced subgraphs and full on the whole graph. Copies have their own
+	 * centralities and share only the values on the whole graph computed for a batch (see prepareBatch).
+	 */
+	private CentralitySourceDetection(Centrality c, Centrality full, AtomicReference<WholeGraphValues> shared) {
 		this.c = c;
+		this.full = full;
+		this.shared = shared;
 		this.ig = null;
+		this.online = null;
 	}
 
 	@Override
@@ -30,14 +47,77 @@ public class CentralitySourceDetection extends ScoringSourceDetectionAlgorithm {
 	@Override
 	public double computeSingleScore(int i, Coalition active, Graph g, Coalition comparison) {
 		prepare(active, g);
-		if (g.size() == active.size())
-			return c.computeSingleCentrality(i, g);
-		else
-			return active.contains(i) ? c.computeSingleCentrality(ig.findNode(i), ig) : Double.NEGATIVE_INFINITY;
+		if (online != null)
+			return scores.get(i);
+		else if (g.size() == active.size()) {
+			WholeGraphValues values = shared.get();
+			return values != null && values.isFor(g) ? values.values[i] : full.computeSingleCentrality(i, g);
+		} else
+			return active.contains(i) ? c.computeSingleCentrality(ig.getIndex(i), ig) : Double.NEGATIVE_INFINITY;
+	}
+	
+	/**
+	 * Values on the whole graph are computed once for the whole batch and shared with the copies as long as
+	 * the graph does not change. Copies working on other graphs (e.g., on forks) use their own centralities.
+	 */
+	@Override
+	protected void prepareBatch(List<Coalition> infections, Graph g) {
+		WholeGraphValues values = shared.get();
+		if ((values == null || !values.isFor(g)) && infections.stream().anyMatch(active -> active.size() == g.size())) {
+			double[] res = new double[g.size()];
+			for (int i : g.nodes())
+				res[i] = full.getCentrality(i, g);
+			shared.set(new WholeGraphValues(g, res));
+		}
+	}
+	
+	@Override
+	protected ScoringSourceDetectionAlgorithm copy() {
+		return new CentralitySourceDetection(c.copy(), full.copy(), shared);
 	}
 	
 	@Override
 	protected void refreshStructures(Coalition active, Graph g) {
-		ig = g.getInducedGraph(active);
+		ig = DetectionContext.get(active, g).getView();
+		online = null;
+	}
+	
+	/**
+	 * The view of the active nodes from the last recount is followed by the online version of the centrality,
+	 * if it has one. Values of all active nodes are then read again, as also the normalization may change.
+	 */
+	@Override
+	protected boolean updateScores(int i, boolean added, Coalition active, Graph g) {
+		OnlineCentrality oc = online != null ? online : c.online(g, ig);
+		if (oc == null || !oc.update(i, added)) {
+			online = null;
+			return false;
+		}
+		online = oc;
+		for (int j : active)
+			scores.put(j, oc.getValue(j));
+		if (!added)
+			scores.put(i, Double.NEGATIVE_INFINITY);
+		return true;
+	}
+	
+	/**
+	 * Values of all nodes of a graph in the given version, which are never changed.
+	 */
+	private static class WholeGraphValues {
+		
+		private final Graph g;
+		private final long version;
+		private final double[] values;
+		
+		public WholeGraphValues(Graph g, double[] values) {
+			this.g = g;
+			this.version = g.getVersion();
+			this.values = values;
+		}
+		
+		public boolean isFor(Graph g) {
+			return this.g == g && version == g.getVersion();
+		}
 	}
 }
@@ -0,0 +1,125 @@
+package hidingsrc.srcdetection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import hidingsrc.core.Coalition;
+import hidingsrc.core.Graph;
+import hidingsrc.core.SubgraphView;
+import hidingsrc.utils.Utils;
+
+/**
+ * Running many source detection algorithms concurrently on the same graph and active nodes, on a fixed number
+ * of threads. Every run takes a snapshot of the graph (see Graph.snapshot), runs all algorithms on it and
+ * returns after all of them have finished, so the graph can be changed again as soon as run() returns.
+ * The snapshot is reused by the following runs as long as the graph does not change (see Graph.getVersion),
+ * so that the results cached by the algorithms for the snapshot (e.g. centralities or shortest paths) stay valid.
+ *
+ * Every algorithm is replaced by its copy (see ScoringSourceDetectionAlgorithm.copy), so that the algorithms
+ * do not share random generators or epidemic models with each other or with the caller; algorithms that cannot
+ * be copied are used themselves. Before every run each algorithm gets its own random stream, split from the
+ * stream of the calling thread in the order of algorithms, so that the results do not depend on scheduling.
+ *
+ * @author Marcin Waniek
+ */
+public class ConcurrentDetection {
+
+	private List<ScoringSourceDetectionAlgorithm> algorithms;
+	private ExecutorService executor;
+	private Graph snapshotOf;
+	private long snapshotVersion;
+	private SubgraphView snapshot;
+
+	public ConcurrentDetection(Collection<ScoringSourceDetectionAlgorithm> algorithms, int threads) {
+		this.algorithms = new ArrayList<>();
+		for (ScoringSourceDetectionAlgorithm alg : algorithms) {
+			ScoringSourceDetectionAlgorithm copy = alg.copy();
+			this.algorithms.add(copy != null ? copy : alg);
+		}
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.snapshotOf = null;
+		this.snapshotVersion = -1;
+		this.snapshot = null;
+	}
+
+	/**
+	 * Results of the function for every algorithm (its copy) and the snapshot of the graph, in the order of
+	 * the algorithms.
+	 */
+	public <T> List<T> run(Graph g, Coalition active, BiFunction<ScoringSourceDetectionAlgorithm, Graph, T> f) {
+		SubgraphView snapshot = snapshot(g);
+		List<Callable<T>> tasks = new ArrayList<>();
+		for (ScoringSourceDetectionAlgorithm alg : algorithms) {
+			alg.prepareBatch(Utils.aList(active), snapshot);
+			SplittableRandom rand = Utils.rand().split();
+			tasks.add(() -> {
+				Utils.setRandom(rand);
+				try {
+					return f.apply(alg, snapshot);
+				} finally {
+					DetectionContext.clear();
+				}
+			});
+		}
+		return invokeAll(executor, tasks);
+	}
+
+	private SubgraphView snapshot(Graph g) {
+		if (snapshotOf != g || snapshotVersion != g.getVersion()) {
+			snapshot = g.snapshot();
+			snapshotOf = g;
+			snapshotVersion = g.getVersion();
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Results of the tasks run by the executor, in the order of the tasks. Runtime exceptions thrown by the tasks
+	 * are rethrown in the calling thread.
+	 */
+	public static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+		List<T> res = new ArrayList<>();
+		try {
+			for (Future<T> future : executor.invokeAll(tasks))
+				res.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the tasks", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("Task failed", e.getCause());
+		}
+		return res;
+	}
+
+	/**
+	 * Copies of all algorithms, which can be used on any graphs in another thread; null if some algorithm cannot
+	 * be copied.
+	 */
+	public static List<ScoringSourceDetectionAlgorithm> copies(Collection<ScoringSourceDetectionAlgorithm> algorithms) {
+		List<ScoringSourceDetectionAlgorithm> res = new ArrayList<>();
+		for (ScoringSourceDetectionAlgorithm alg : algorithms) {
+			ScoringSourceDetectionAlgorithm copy = alg.copy();
+			if (copy == null)
+				return null;
+			res.add(copy);
+		}
+		return res;
+	}
+
+	/**
+	 * Stops the threads, after which the object cannot be used any more.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
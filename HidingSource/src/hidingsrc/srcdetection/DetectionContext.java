@@ -0,0 +1,91 @@
+package hidingsrc.srcdetection;
+
+import hidingsrc.core.Coalition;
+import hidingsrc.core.CompactSubgraph;
+import hidingsrc.core.Graph;
+import hidingsrc.core.SubgraphView;
+
+/**
+ * Structures describing a graph with a set of active nodes, shared by all detection algorithms run on them:
+ * the subgraph induced by the active nodes (with the eccentricities of its nodes), and its read-only view on which
+ * centralities are computed (so that also its degrees and shortest paths are computed only once).
+ * 
+ * Every thread keeps the context of the last pair it has seen. It is recognized by the versions of the graph
+ * and of the active nodes (see ScoringSourceDetectionAlgorithm.prepare). Threads of pools should release it
+ * with clear() when their task is done, so that it does not keep the graph in memory.
+ * 
+ * @author Marcin Waniek
+ */
+public class DetectionContext {
+
+	private static final ThreadLocal<DetectionContext> last = new ThreadLocal<>();
+	
+	private Graph g;
+	private long gVersion;
+	private Coalition active;
+	private Coalition activeRef;
+	private long activeVersion;
+	private CompactSubgraph compact;
+	private SubgraphView view;
+	
+	private DetectionContext(Coalition active, Graph g) {
+		this.g = g;
+		this.gVersion = g.getVersion();
+		this.active = new Coalition(active);
+		this.activeRef = active;
+		this.activeVersion = active.getVersion();
+		this.compact = null;
+		this.view = null;
+	}
+	
+	/**
+	 * Context of given graph and active nodes, reused if the current thread has already asked for it.
+	 */
+	public static DetectionContext get(Coalition active, Graph g) {
+		DetectionContext res = last.get();
+		if (res == null || !res.describes(active, g)) {
+			res = new DetectionContext(active, g);
+			last.set(res);
+		}
+		return res;
+	}
+	
+	/**
+	 * Forgets the context of the current thread.
+	 */
+	public static void clear() {
+		last.remove();
+	}
+	
+	private boolean describes(Coalition active, Graph g) {
+		if (g != this.g || g.getVersion() != gVersion)
+			return false;
+		if (active != activeRef || active.getVersion() != activeVersion) {
+			if (!active.equals(this.active))
+				return false;
+			activeRef = active;
+			activeVersion = active.getVersion();
+		}
+		return true;
+	}
+	
+	public Graph getGraph() {
+		return g;
+	}
+	
+	public Coalition getActive() {
+		return active;
+	}
+	
+	public CompactSubgraph getCompact() {
+		if (compact == null)
+			compact = new CompactSubgraph(g, active);
+		return compact;
+	}
+	
+	public SubgraphView getView() {
+		if (view == null)
+			view = new SubgraphView(getCompact(), "induced(" + g.getName() + ")", g.isDirected());
+		return view;
+	}
+}
@@ -0,0 +1,93 @@
+package hidingsrc.srcdetection;
+
+import java.util.stream.IntStream;
+
+import hidingsrc.core.Coalition;
+
+/**
+ * Jaccard similarity between a fixed set of active nodes and simulated diffusion results,
+ * both represented as packed bitsets (64 nodes per word). Only the words holding active nodes are compared,
+ * so the time is proportional to the number of active nodes rather than to the size of the graph.
+ * 
+ * @author Marcin Waniek
+ */
+public class JaccardKernel {
+
+	private long[] active;
+	private int[] activeWords;
+	private int activeSize;
+	
+	public JaccardKernel(Coalition active, int n) {
+		this.active = newBuffer(n);
+		this.activeSize = active.size();
+		for (int i : active)
+			this.active[i >>> 6] |= 1L << i;
+		this.activeWords = IntStream.range(0, this.active.length).filter(w -> this.active[w] != 0L).toArray();
+	}
+	
+	public static long[] newBuffer(int n) {
+		return new long[(n + 63) >>> 6];
+	}
+	
+	public int getActiveSize() {
+		return activeSize;
+	}
+	
+	/**
+	 * Similarity with a result marked in a bitset, having the given number of nodes (as returned by
+	 * EpidemicModel.runDiffusion), so that only the words of the active nodes are read.
+	 */
+	public double jaccard(long[] simulated, int simulatedSize) {
+		int inter = 0;
+		for (int w : activeWords)
+			inter += Long.bitCount(active[w] & simulated[w]);
+		return (double) inter / (activeSize + simulatedSize - inter);
+	}
+	
+	/**
+	 * Similarity with a result given as a list of nodes.
+	 */
+	public double jaccard(int[] simulated) {
+		int inter = 0;
+		for (int i : simulated)
+			if ((active[i >>> 6] & (1L << i)) != 0)
+				++inter;
+		return (double) inter / (activeSize + simulated.length - inter);
+	}
+	
+	/**
+	 * Nodes marked in a bitset with given number of bits set.
+	 */
+	public static int[] toNodes(long[] bits, int size) {
+		int[] res = new int[size];
+		int k = 0;
+		for (int w = 0; w < bits.length; ++w)
+			for (long word = bits[w]; word != 0; word &= word - 1)
+				res[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+		return res;
+	}
+	
+	/**
+	 * Upper bound on the similarity of a simulated result with more than given number of nodes.
+	 */
+	public double jaccardBound(int size) {
+		return Math.min(1., (double) activeSize / (size + 1));
+	}
+	
+	/**
+	 * Largest size of a simulated result that has to be simulated exactly. The similarity J of any larger result
+	 * is at most jaccardBound(size), and using the bound instead of J changes the soft margin contribution
+	 * exp(-(J-1)^2/a^2) of the sample by at most tolerance, for softness a and every smaller one (the difference
+	 * between the contributions of the bound and of 0 is largest at the largest softness, as long as the bound
+	 * is small enough, which is checked). Integer.MAX_VALUE if there is no such size.
+	 */
+	public int maxRelevantSize(double a, double tolerance) {
+		double maxJacc = 1. - a * Math.sqrt(-Math.log(Math.exp(-1. / (a * a)) + tolerance));
+		if (!(maxJacc > 0.) || maxJacc >= 1.)
+			return Integer.MAX_VALUE;
+		double peak = -2. * Math.log(1. - maxJacc) / (1. - (1. - maxJacc) * (1. - maxJacc));
+		if (1. / (a * a) < peak)
+			return Integer.MAX_VALUE;
+		return (int) Math.min(Integer.MAX_VALUE, Math.floor(activeSize / maxJacc));
+	}
+}
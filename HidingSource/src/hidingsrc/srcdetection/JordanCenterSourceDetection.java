@@ -0,0 +1,155 @@
+package hidingsrc.srcdetection;
+
+import java.util.Arrays;
+
+import hidingsrc.core.Coalition;
+import hidingsrc.core.CompactSubgraph;
+import hidingsrc.core.Graph;
+
+/**
+ * Source detection algorithm selecting the Jordan center of the subgraph induced by the active nodes, i.e.,
+ * nodes are ranked by their eccentricity in this subgraph (the smaller the better).
+ *
+@article{zhu2016information,
+  title={Information source detection in the SIR model: A sample-path-based approach},
+  author={Zhu, Kai and Ying, Lei},
+  journal={IEEE/ACM Transactions on Networking},
+  volume={24},
+  number={1},
+  pages={408--421},
+  year={2016},
+  publisher={IEEE}
+}
+ *
+ * Instead of a BFS from every node, eccentricities are bounded as in the algorithm of Takes and Kosters (2013).
+ * After a BFS from w, for every node v: d(v,w) <= ecc(v) <= d(v,w) + ecc(w) and ecc(v) >= ecc(w) - d(w,v).
+ * The next BFS starts alternately from the unresolved node with the smallest lower bound and from the one with
+ * the largest upper bound, until the bounds meet. Only nodes whose lower bound is at most the radius plus
+ * the margin are resolved, the remaining ones are scored by their lower bound. By default all eccentricities
+ * are resolved, which usually still takes only a small fraction of |active| searches.
+ *
+@article{takes2013computing,
+  title={Computing the eccentricity distribution of large graphs},
+  author={Takes, Frank W and Kosters, Walter A},
+  journal={Algorithms},
+  volume={6},
+  number={1},
+  pages={100--118},
+  year={2013},
+  publisher={MDPI}
+}
+ *
+ * @author Marcin Waniek
+ */
+public class JordanCenterSourceDetection extends ScoringSourceDetectionAlgorithm {
+
+	private static final int INF = Integer.MAX_VALUE / 2;
+
+	private int margin;
+
+	/**
+	 * Resolves exactly only nodes with eccentricity at most the radius plus the margin.
+	 */
+	public JordanCenterSourceDetection(int margin) {
+		this.margin = margin;
+	}
+
+	public JordanCenterSourceDetection() {
+		this(INF);
+	}
+
+	@Override
+	public String getName() {
+		return "JordanCenter";
+	}
+
+	/**
+	 * Nodes that cannot reach all active nodes have infinite eccentricity, and are scored below all others.
+	 */
+	@Override
+	protected void recountScores(Coalition active, Graph g) {
+		CompactSubgraph sg = DetectionContext.get(active, g).getCompact();
+		int k = sg.size();
+		int[] lower = new int[k];
+		int[] upper = new int[k];
+		Arrays.fill(upper, INF);
+		boolean fromHighest = false;
+		for (int w = selectNext(sg, lower, upper, false); w >= 0; w = selectNext(sg, lower, upper, fromHighest)) {
+			fromHighest = !fromHighest;
+			CompactSubgraph.BfsTree tree = sg.getBfsTree(w);
+			int ecc = tree.reachedCount() == k ? tree.getEccentricity() : INF;
+			int[] back = g.isDirected() ? reverseDistances(sg, w) : null;
+			for (int v = 0; v < k; ++v) {
+				int from = tree.getDepth(v) < 0 ? INF : tree.getDepth(v);
+				int to = back == null ? from : back[v];
+				if (to == INF || (!g.isDirected() && ecc == INF)) {
+					lower[v] = INF;
+					upper[v] = INF;
+				} else {
+					upper[v] = Math.min(upper[v], ecc == INF ? INF : to + ecc);
+					lower[v] = Math.max(lower[v], Math.max(to, ecc == INF || from == INF ? 0 : ecc - from));
+				}
+			}
+		}
+		for (int i : g.nodes()) {
+			int a = sg.index(i);
+			scores.put(i, a < 0 ? Double.NEGATIVE_INFINITY : lower[a] == INF ? -k : -lower[a]);
+		}
+	}
+
+	/**
+	 * Unresolved node that can still be within the margin from the radius, with the smallest lower bound or
+	 * the largest upper bound (ties broken by higher degree); -1 if there is none.
+	 */
+	private int selectNext(CompactSubgraph sg, int[] lower, int[] upper, boolean fromHighest) {
+		int radius = Arrays.stream(upper).min().orElse(INF);
+		int[] offsets = sg.getSuccOffsets();
+		int res = -1;
+		for (int v = 0; v < sg.size(); ++v)
+			if (lower[v] < upper[v] && (long)lower[v] <= (long)radius + margin) {
+				if (res < 0)
+					res = v;
+				else {
+					int cmp = fromHighest ? Integer.compare(upper[v], upper[res])
+							: Integer.compare(lower[res], lower[v]);
+					if (cmp > 0 || (cmp == 0 && offsets[v + 1] - offsets[v] > offsets[res + 1] - offsets[res]))
+						res = v;
+				}
+			}
+		return res;
+	}
+
+	/**
+	 * Distances from all nodes to w, INF for nodes that cannot reach it.
+	 */
+	private int[] reverseDistances(CompactSubgraph sg, int w) {
+		int[] offsets = sg.getPredOffsets();
+		int[] targets = sg.getPredTargets();
+		int[] res = new int[sg.size()];
+		Arrays.fill(res, INF);
+		int[] queue = new int[sg.size()];
+		queue[0] = w;
+		res[w] = 0;
+		int head = 0;
+		int tail = 1;
+		while (head < tail) {
+			int i = queue[head++];
+			for (int e = offsets[i]; e < offsets[i + 1]; ++e)
+				if (res[targets[e]] == INF) {
+					res[targets[e]] = res[i] + 1;
+					queue[tail++] = targets[e];
+				}
+		}
+		return res;
+	}
+
+	@Override
+	protected ScoringSourceDetectionAlgorithm copy() {
+		return new JordanCenterSourceDetection(margin);
+	}
+
+	@Override
+	public double computeSingleScore(int i, Coalition active, Graph g, Coalition comparison) {
+		return getScore(i, active, g);
+	}
+}
@@ -1,8 +1,17 @@
 package hidingsrc.srcdetection;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
 import hidingsrc.core.Coalition;
+import hidingsrc.core.CompactSubgraph;
+import hidingsrc.core.Edge;
 import hidingsrc.core.Graph;
+import hidingsrc.core.SubgraphView;
 import hidingsrc.epidemic.EpidemicModel;
+import hidingsrc.epidemic.LiveEdgeSample;
 import hidingsrc.utils.Utils;
 
 /**
@@ -18,20 +27,164 @@ import hidingsrc.utils.Utils;
   year={2015},
   publisher={APS}
 }
+ *
+ * In the live-edge mode (available for models with a live-edge representation, see EpidemicModel.sampleLiveEdges)
+ * every sample is a single live-edge graph shared by all candidates, instead of a separate simulation for each.
+ * 
+ * Simulations are streamed into packed bitsets and compared with the active nodes word by word (see JaccardKernel).
+ * With early termination enabled, a simulation is abandoned once its result is so large that replacing its
+ * similarity with an upper bound changes its contribution to the score by less than a given tolerance, at the given
+ * softness and every smaller one (see JaccardKernel.maxRelevantSize). The softness search then starts from the given
+ * value instead of .5, so that the bound holds for every softness it tries.
+ * 
+ * Every simulation (a candidate and a number of the sample) has its own random seed, derived from a seed drawn
+ * from the random stream of the model, so the result does not depend on how the simulations are split between
+ * threads.
+ * 
+ * Outside of the incremental and adaptive modes the similarities of every scored candidate are kept, together with
+ * the seed, until the graph or the active nodes change (as recognized by their versions), so that scoring a larger
+ * comparison group simulates only the new candidates, with the same result as scoring the larger group at once.
+ * 
+ * In the incremental mode the result of every simulation is kept as a list of nodes (its trace), and the seeds are
+ * kept as long as the traces. When the graph changes, only the simulations whose trace contains a node affected by
+ * the change (see EpidemicModel.getAffectedBy) are run again, with the same seeds, while the others are reused, also
+ * when the active nodes change. A simulation avoiding the affected nodes draws the same random numbers on the
+ * changed graph, so the scores are those of a fresh detection with the same seeds. The only exception is an edge
+ * added and then removed within a single batch of changes (see Graph.endBatch), which is not reported, although
+ * the adjacency sets of its ends may iterate in a different order afterwards.
+ * 
+ * Simulations can be restricted to a region: the subgraph induced by the active nodes and their k-hop
+ * neighbourhood (ignoring directions of edges). A diffusion that never reaches the nodes exactly k hops away has
+ * the same outcome as in the whole graph, as no edge leaving the region was examined. Otherwise it is truncated at
+ * the border of the region, but then it contains a path of at least k non-active nodes, so its similarity is at most
+ * |active| / (|active| + k). In SI and SIR models the truncated result is a subset of the full one, so the same
+ * bound holds for the true similarity, and the error of the contribution of such a sample is at most the soft
+ * margin value of this bound. Early termination (see above) bounds the size of simulated
+ * results also within the region.
+ * 
+ * In the adaptive mode samples are gathered in batches, and candidates that clearly cannot be the best one
+ * stop receiving them (successive elimination).
+ * 
+ * Simulations are run in parallel. Every chunk of candidates (or every live-edge sample) uses its own copy of
+ * the epidemic model; live-edge samples get their own random streams, split from the stream of the model in a fixed
+ * order, so the scores do not depend on thread scheduling.
  *
  * @author Marcin Waniek
  */
 public class MonteCarloSourceDetection extends ScoringSourceDetectionAlgorithm {
 	
 	private static final int SAMPLES = 100;
+	private static final int BATCH = 10;
 	private static final double CONVERGENCE_THRESHOLD = .05;
+	private static final int CHUNKS_PER_CORE = 4;
+	private static final double DEFAULT_TOLERANCE = .001;
 
 	private EpidemicModel em;
 	private Coalition candidates;
+	private Coalition scoredGroup;
+	private long scoredGroupVersion;
+	private boolean liveEdges;
+	private boolean adaptive;
+	private double confidence;
+	private int budget;
+	private double cutoffSoftness;
+	private double cutoffTolerance;
+	private AtomicLong truncated;
+	private boolean incremental;
+	private int regionHops;
+	private int[][][] traces;
+	private long tracesSeed;
+	private Graph tracesGraph;
+	private Coalition dirty;
+	private double[][] rows;
+	private long rowsSeed;
+	private Graph rowsGraph;
+	private long rowsGraphVersion;
+	private Coalition rowsActive;
+	private long rowsActiveVersion;
 	
-	public MonteCarloSourceDetection(EpidemicModel em) {
+	public MonteCarloSourceDetection(EpidemicModel em, boolean liveEdges) {
 		this.em = em;
 		this.candidates = null;
+		this.scoredGroup = null;
+		this.scoredGroupVersion = 0;
+		this.liveEdges = liveEdges;
+		this.adaptive = false;
+		this.confidence = 0.;
+		this.budget = 0;
+		this.cutoffSoftness = 0.;
+		this.cutoffTolerance = DEFAULT_TOLERANCE;
+		this.truncated = new AtomicLong();
+		this.incremental = false;
+		this.regionHops = Integer.MAX_VALUE;
+		this.traces = null;
+		this.tracesSeed = 0;
+		this.tracesGraph = null;
+		this.dirty = new Coalition();
+		this.rows = null;
+		this.rowsSeed = 0;
+		this.rowsGraph = null;
+		this.rowsGraphVersion = 0;
+		this.rowsActive = null;
+		this.rowsActiveVersion = 0;
+	}
+	
+	public MonteCarloSourceDetection(EpidemicModel em) {
+		this(em, false);
+	}
+	
+	/**
+	 * Switches to adaptive sample allocation. After every batch, candidates whose upper confidence bound on
+	 * the score falls below the lower bound of the current leader stop receiving samples. Bounds follow
+	 * Hoeffding's inequality (scores of single samples are in [0,1]) with the union bound over all candidates
+	 * and batches. The budget limits the total number of simulations, but every candidate gets at least one batch.
+	 */
+	public MonteCarloSourceDetection setAdaptive(double confidence, int budget) {
+		this.adaptive = true;
+		this.confidence = confidence;
+		this.budget = budget;
+		return this;
+	}
+
+	/**
+	 * Enables early termination of simulations so large that their contribution to the score can be bounded
+	 * within the tolerance, for softness a (and every smaller one).
+	 */
+	public MonteCarloSourceDetection setEarlyTermination(double a, double tolerance) {
+		this.cutoffSoftness = a;
+		this.cutoffTolerance = tolerance;
+		this.rows = null;
+		return this;
+	}
+	
+	public MonteCarloSourceDetection setEarlyTermination(double a) {
+		return setEarlyTermination(a, DEFAULT_TOLERANCE);
+	}
+	
+	/**
+	 * Number of simulations abandoned by early termination so far.
+	 */
+	public long getTruncatedCount() {
+		return truncated.get();
+	}
+
+	/**
+	 * Switches to the incremental mode, in which simulations are reused between changes of the graph.
+	 */
+	public MonteCarloSourceDetection setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		this.traces = null;
+		return this;
+	}
+
+	/**
+	 * Restricts simulations to the subgraph induced by the active nodes and nodes within given number of hops
+	 * from them (see the description of the class). Every detection builds a new read-only view of the region,
+	 * so traces of the incremental mode are not reused in this mode.
+	 */
+	public MonteCarloSourceDetection setRegion(int hops) {
+		this.regionHops = hops;
+		return this;
 	}
 
 	@Override
@@ -39,53 +192,319 @@ public class MonteCarloSourceDetection extends ScoringSourceDetectionAlgorithm {
 		return "MonteCarlo";
 	}
 
+	/**
+	 * Only infected nodes can be the source, so by default they are the only candidates.
+	 */
 	@Override
 	protected void recountScores(Coalition active, Graph g) {
-		if (candidates == null)
-			candidates = g.nodesCoalition();
-		double[][] jaccs = new double[g.size()][SAMPLES];
-		for (int i : candidates)
-			for (int sample = 0; sample < SAMPLES; ++sample)
-				jaccs[i][sample] = jaccard(active, em.runDiffusion(i, g));
-		double a = .5;
-		double[] pts = computePoints(jaccs, a);
+		Coalition cands = candidates != null ? candidates : active;
+		double[] pts = new double[g.size()];
+		Arrays.fill(pts, Double.NEGATIVE_INFINITY);
+		if (regionHops == Integer.MAX_VALUE) {
+			double[] res = computeScores(active, g, cands);
+			cands.forEach(i -> pts[i] = res[i]);
+		} else {
+			SubgraphView rg = new SubgraphView(new CompactSubgraph(g, getRegion(active, g)),
+					"region(" + g.getName() + ")", g.isDirected());
+			Coalition rActive = active.stream().map(i -> rg.getIndex(i)).boxed().collect(Coalition.getCollector());
+			Coalition rCands = cands.stream().map(i -> rg.getIndex(i)).filter(i -> i >= 0).boxed()
+					.collect(Coalition.getCollector());
+			double[] res = computeScores(rActive, rg, rCands);
+			rCands.forEach(i -> pts[rg.getOriginal(i)] = res[i]);
+		}
+		for (int i : g.nodes())
+			scores.put(i, pts[i]);
+		candidates = null;
+	}
+	
+	/**
+	 * Nodes within regionHops hops from the active ones, ignoring the directions of edges, in the order of
+	 * a breadth-first search (which stops at the first node regionHops hops away).
+	 */
+	private int[] getRegion(Coalition active, Graph g) {
+		int[] depth = new int[g.size()];
+		Arrays.fill(depth, -1);
+		int[] res = new int[g.size()];
+		int size = 0;
+		for (int i : active) {
+			depth[i] = 0;
+			res[size++] = i;
+		}
+		for (int k = 0; k < size && depth[res[k]] < regionHops; ++k)
+			for (int j : g.getNeighs(res[k]))
+				if (depth[j] < 0) {
+					depth[j] = depth[res[k]] + 1;
+					res[size++] = j;
+				}
+		return Arrays.copyOf(res, size);
+	}
+	
+	private double[] computeScores(Coalition active, Graph g, Coalition cands) {
+		double[][] jaccs = new double[g.size()][];
+		int[] samples = new int[g.size()];
+		for (int i : cands) {
+			jaccs[i] = new double[SAMPLES];
+			samples[i] = SAMPLES;
+		}
+		if (!liveEdges || !sampleLiveEdges(active, g, cands, jaccs)) {
+			if (incremental || adaptive) {
+				long seed = incremental ? refreshTraces(g) : em.getRandom().nextLong();
+				JaccardKernel kernel = new JaccardKernel(active, g.size());
+				if (adaptive)
+					simulateAdaptively(kernel, g, cands, jaccs, samples, seed);
+				else
+					simulate(cands.stream().toArray(), 0, SAMPLES, kernel, g, jaccs, copyModel(chunks(cands)), seed);
+			} else {
+				int[] fresh = reuseRows(active, g, cands, jaccs);
+				if (fresh.length > 0) {
+					JaccardKernel kernel = new JaccardKernel(active, g.size());
+					simulate(fresh, 0, SAMPLES, kernel, g, jaccs, copyModel(chunks(cands)), rowsSeed);
+					for (int i : fresh)
+						rows[i] = jaccs[i];
+				}
+			}
+		}
+		return computePoints(jaccs, samples, cands);
+	}
+	
+	/**
+	 * Fills the similarities of candidates already simulated for the same active nodes on the same graph, and
+	 * returns the remaining candidates. When the graph or the active nodes have changed, the kept similarities
+	 * are discarded and a new seed is drawn.
+	 */
+	private int[] reuseRows(Coalition active, Graph g, Coalition cands, double[][] jaccs) {
+		if (rows == null || g != rowsGraph || g.getVersion() != rowsGraphVersion || active != rowsActive
+				|| active.getVersion() != rowsActiveVersion) {
+			rows = new double[g.size()][];
+			rowsSeed = em.getRandom().nextLong();
+			rowsGraph = g;
+			rowsGraphVersion = g.getVersion();
+			rowsActive = active;
+			rowsActiveVersion = active.getVersion();
+		}
+		int[] res = new int[cands.size()];
+		int size = 0;
+		for (int i : cands)
+			if (rows[i] != null)
+				jaccs[i] = rows[i];
+			else
+				res[size++] = i;
+		return Arrays.copyOf(res, size);
+	}
+	
+	/**
+	 * Fills the Jaccard similarities of given samples with independent simulations, in parallel over chunks
+	 * of candidates. Every chunk writes only the rows of its own candidates. In the incremental mode valid traces
+	 * are used instead of simulations, and new ones are recorded (rows of traces are allocated only for candidates).
+	 */
+	private void simulate(int[] cands, int fromSample, int toSample, JaccardKernel kernel, Graph g, double[][] jaccs,
+			EpidemicModel[] models, long seed) {
+		int chunks = Math.min(cands.length, models.length);
+		int maxSize = cutoffSoftness > 0. ? kernel.maxRelevantSize(cutoffSoftness, cutoffTolerance) : Integer.MAX_VALUE;
+		IntStream.range(0, chunks).parallel().forEach(chunk -> {
+			long[] simulated = JaccardKernel.newBuffer(g.size());
+			for (int k = chunk; k < cands.length; k += chunks) {
+				int c = cands[k];
+				if (incremental && traces[c] == null)
+					traces[c] = new int[SAMPLES][];
+				for (int sample = fromSample; sample < toSample; ++sample) {
+					if (incremental && traces[c][sample] != null) {
+						jaccs[c][sample] = kernel.jaccard(traces[c][sample]);
+						continue;
+					}
+					models[chunk].setRandom(new SplittableRandom(sampleSeed(seed, c, sample)));
+					int size = models[chunk].runDiffusion(c, g, simulated, maxSize);
+					if (size < 0)
+						truncated.incrementAndGet();
+					jaccs[c][sample] = size < 0 ? kernel.jaccardBound(maxSize) : kernel.jaccard(simulated, size);
+					if (incremental && size >= 0)
+						traces[c][sample] = JaccardKernel.toNodes(simulated, size);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Seed of the simulation of given sample from candidate c, mixed from the seed of the detection
+	 * (with the finalizer of SplitMix64), so that seeds of different simulations give unrelated streams.
+	 */
+	private static long sampleSeed(long seed, int c, int sample) {
+		long z = seed + ((long)c * SAMPLES + sample + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Discards the traces invalidated by the changes of the graph since the last detection (all of them, together
+	 * with their seed, if the graph is a different object). Returns the seed of the traces.
+	 */
+	private long refreshTraces(Graph g) {
+		if (traces == null || g != tracesGraph || traces.length != g.size()) {
+			traces = new int[g.size()][][];
+			tracesSeed = em.getRandom().nextLong();
+			tracesGraph = g;
+		} else if (!dirty.isEmpty()) {
+			boolean[] isDirty = new boolean[g.size()];
+			dirty.forEach(i -> isDirty[i] = true);
+			IntStream.range(0, traces.length).parallel().filter(c -> traces[c] != null).forEach(c -> {
+				for (int sample = 0; sample < SAMPLES; ++sample)
+					if (traces[c][sample] != null && Arrays.stream(traces[c][sample]).anyMatch(i -> isDirty[i]))
+						traces[c][sample] = null;
+			});
+		}
+		dirty = new Coalition();
+		return tracesSeed;
+	}
+	
+	/**
+	 * Successive elimination of candidates, recording the number of samples each of them received.
+	 */
+	private void simulateAdaptively(JaccardKernel kernel, Graph g, Coalition cands, double[][] jaccs, int[] samples,
+			long seed) {
+		EpidemicModel[] models = copyModel(chunks(cands));
+		int batches = SAMPLES / BATCH;
+		double logTerm = Math.log(2. * cands.size() * batches / (1. - confidence));
+		Coalition alive = new Coalition(cands);
+		int used = 0;
+		for (int batch = 0; batch < batches && alive.size() > 1; ++batch) {
+			int[] aliveArr = alive.stream().toArray();
+			if (batch > 0 && used + aliveArr.length * BATCH > budget)
+				break;
+			simulate(aliveArr, batch * BATCH, (batch + 1) * BATCH, kernel, g, jaccs, models, seed);
+			used += aliveArr.length * BATCH;
+			for (int i : aliveArr)
+				samples[i] = (batch + 1) * BATCH;
+			double[] pts = computePoints(jaccs, samples, alive);
+			int leader = Utils.argmax(alive, i -> pts[i]);
+			double leaderLower = pts[leader] - Math.sqrt(logTerm / (2. * samples[leader]));
+			alive.filter(i -> pts[i] + Math.sqrt(logTerm / (2. * samples[i])) >= leaderLower);
+		}
+		if (alive.size() == 1 && samples[alive.getAny()] < BATCH) {
+			int[] last = alive.stream().toArray();
+			simulate(last, 0, BATCH, kernel, g, jaccs, models, seed);
+			samples[last[0]] = BATCH;
+		}
+	}
+	
+	/**
+	 * Fills the Jaccard similarities using live-edge samples, in parallel over samples.
+	 * Returns false if the model does not support them.
+	 */
+	private boolean sampleLiveEdges(Coalition active, Graph g, Coalition cands, double[][] jaccs) {
+		EpidemicModel[] models = copyModel(SAMPLES);
+		return IntStream.range(0, SAMPLES).parallel().allMatch(sample -> {
+			LiveEdgeSample les = models[sample].sampleLiveEdges(g);
+			if (les == null)
+				return false;
+			les.setMarked(active);
+			int depth = em.getLiveEdgeDepth();
+			double[] compJaccs = null;
+			if (depth == Integer.MAX_VALUE) {
+				compJaccs = new double[les.componentsCount()];
+				Arrays.fill(compJaccs, Double.NaN);
+			}
+			for (int i : cands) {
+				if (compJaccs == null)
+					jaccs[i][sample] = jaccard(active.size(), les.reach(i, depth));
+				else {
+					int c = les.getComponent(i);
+					if (Double.isNaN(compJaccs[c]))
+						compJaccs[c] = jaccard(active.size(), les.reachComponent(c));
+					jaccs[i][sample] = compJaccs[c];
+				}
+			}
+			return true;
+		});
+	}
+	
+	private int chunks(Coalition cands) {
+		return Math.max(1, Math.min(cands.size(), CHUNKS_PER_CORE * Runtime.getRuntime().availableProcessors()));
+	}
+	
+	/**
+	 * Independent copies of the epidemic model, each with its own random stream.
+	 */
+	private EpidemicModel[] copyModel(int k) {
+		SplittableRandom rand = em.getRandom();
+		EpidemicModel[] res = new EpidemicModel[k];
+		for (int i = 0; i < k; ++i) {
+			res[i] = em.copy();
+			res[i].setRandom(rand.split());
+		}
+		return res;
+	}
+	
+	private double jaccard(int activeSize, int[] reach) {
+		return (double) reach[1] / (activeSize + reach[0] - reach[1]);
+	}
+	
+	/**
+	 * Soft margin scores of a group of candidates, with the softness decreased until the score of the best
+	 * candidate converges. With early termination the softness never exceeds the one it was set for.
+	 */
+	private double[] computePoints(double[][] jaccs, int[] samples, Coalition group) {
+		double a = cutoffSoftness > 0. ? cutoffSoftness : .5;
+		double[] pts = computePoints(jaccs, samples, group, a);
 		do {
 			a /= 2.;
-			double[] newPts = computePoints(jaccs, a);
-			if (converged(newPts, pts))
+			double[] newPts = computePoints(jaccs, samples, group, a);
+			if (converged(newPts, pts, group))
 				break;
 			pts = newPts;
 		} while (a >= Math.pow(.5, 15));
-		for (int i : g.nodes())
-			if (candidates.contains(i))
-				scores.put(i, pts[i]);
-			else
-				scores.put(i, Double.NEGATIVE_INFINITY);
-		candidates = null;
-	}
-	
-	private double jaccard(Coalition active, Coalition simulated) {
-		return (double) active.inplaceIntersect(simulated).count() / active.inplaceAdd(simulated).count(); 
+		return pts;
 	}
 	
-	private double[] computePoints(double[][]jaccs, double a) {
+	private double[] computePoints(double[][] jaccs, int[] samples, Coalition group, double a) {
 		double[] res = new double[jaccs.length];
-		for (int i : candidates) {
-			for (int sample = 0; sample < SAMPLES; ++sample)
+		for (int i : group) {
+			for (int sample = 0; sample < samples[i]; ++sample)
 				res[i] += Math.exp(-(jaccs[i][sample] - 1.) * (jaccs[i][sample] - 1.) / (a * a));
-			res[i] /= SAMPLES;
+			res[i] /= samples[i];
 		}
 		return res;
 	}
 	
-	private boolean converged(double[] newPts, double[] oldPts) {
-		int best = Utils.argmax(candidates, i -> newPts[i]);
+	private boolean converged(double[] newPts, double[] oldPts, Coalition group) {
+		int best = Utils.argmax(group, i -> newPts[i]);
 		return Math.abs(newPts[best] - oldPts[best]) < CONVERGENCE_THRESHOLD;
 	}
 
+	@Override
+	public void notifyAdd(Graph g, Edge e) {
+		super.notifyAdd(g, e);
+		if (incremental && g == tracesGraph)
+			dirty.add(em.getAffectedBy(e, g));
+	}
+
+	@Override
+	public void notifyRemove(Graph g, Edge e) {
+		super.notifyRemove(g, e);
+		if (incremental && g == tracesGraph)
+			dirty.add(em.getAffectedBy(e, g));
+	}
+
+	@Override
+	protected ScoringSourceDetectionAlgorithm copy() {
+		MonteCarloSourceDetection res = new MonteCarloSourceDetection(em.copy(), liveEdges)
+				.setEarlyTermination(cutoffSoftness, cutoffTolerance).setIncremental(incremental).setRegion(regionHops);
+		return adaptive ? res.setAdaptive(confidence, budget) : res;
+	}
+
+	/**
+	 * Scores are computed for the whole comparison group at once, and recounted when a different group (another
+	 * object, or a changed one) is given; similarities of the candidates scored before are then reused
+	 * (see reuseRows).
+	 */
 	@Override
 	public double computeSingleScore(int i, Coalition active, Graph g, Coalition comparison) {
+		if (comparison != scoredGroup || comparison.getVersion() != scoredGroupVersion) {
+			scoredGroup = comparison;
+			scoredGroupVersion = comparison.getVersion();
+			scores = null;
+		}
 		this.candidates = comparison;
 		return getScore(i, active, g);
 	}
-}
\ No newline at end of file
+}
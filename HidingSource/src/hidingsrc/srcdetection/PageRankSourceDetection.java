@@ -0,0 +1,98 @@
+package hidingsrc.srcdetection;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import hidingsrc.core.Coalition;
+import hidingsrc.core.Graph;
+
+/**
+ * Source detection algorithm scoring active nodes with personalized PageRank seeded on the active nodes, with
+ * the walk following edges backwards (towards the source). The PageRank is approximated with the local push of
+ * Andersen, Chung and Lang (2006): every active node starts with a unit of residual mass, and a node pushes its
+ * residual (keeping the alpha share, spreading the rest among its predecessors) only if the residual is at
+ * least epsilon times its in-degree. This takes O(|active| / (epsilon * alpha)) time regardless of the size of
+ * the graph, and only nodes reached by the pushes are ever touched.
+ *
+@inproceedings{andersen2006local,
+  title={Local graph partitioning using pagerank vectors},
+  author={Andersen, Reid and Chung, Fan and Lang, Kevin},
+  booktitle={2006 47th Annual IEEE Symposium on Foundations of Computer Science (FOCS'06)},
+  pages={475--486},
+  year={2006},
+  organization={IEEE}
+}
+ *
+ * @author Marcin Waniek
+ */
+public class PageRankSourceDetection extends ScoringSourceDetectionAlgorithm {
+
+	public static final double DEF_ALPHA = .15;
+	public static final double DEF_EPSILON = .0001;
+
+	private double alpha;
+	private double epsilon;
+
+	public PageRankSourceDetection(double alpha, double epsilon) {
+		this.alpha = alpha;
+		this.epsilon = epsilon;
+	}
+
+	public PageRankSourceDetection() {
+		this(DEF_ALPHA, DEF_EPSILON);
+	}
+
+	@Override
+	public String getName() {
+		return "PageRank";
+	}
+
+	/**
+	 * Only the active nodes are scored, all other nodes are left with -inf.
+	 */
+	@Override
+	protected void recountScores(Coalition active, Graph g) {
+		Map<Integer,Double> pageRank = new HashMap<>();
+		Map<Integer,Double> residual = new HashMap<>();
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int v : active) {
+			residual.put(v, 1.);
+			if (1. >= threshold(v, g))
+				queue.add(v);
+		}
+		while (!queue.isEmpty()) {
+			int u = queue.poll();
+			double mass = residual.put(u, 0.);
+			int deg = g.getInDegree(u);
+			if (deg == 0) {
+				pageRank.merge(u, mass, Double::sum);
+				continue;
+			}
+			pageRank.merge(u, alpha * mass, Double::sum);
+			double share = (1. - alpha) * mass / deg;
+			for (int v : g.getPreds(u)) {
+				double r = residual.merge(v, share, Double::sum);
+				if (r >= threshold(v, g) && r - share < threshold(v, g))
+					queue.add(v);
+			}
+		}
+		for (int v : active)
+			scores.put(v, pageRank.getOrDefault(v, 0.));
+	}
+
+	private double threshold(int v, Graph g) {
+		return epsilon * Math.max(g.getInDegree(v), 1);
+	}
+
+	@Override
+	protected ScoringSourceDetectionAlgorithm copy() {
+		return new PageRankSourceDetection(alpha, epsilon);
+	}
+
+	@Override
+	public double computeSingleScore(int i, Coalition active, Graph g, Coalition comparison) {
+		return getScore(i, active, g);
+	}
+}
@@ -1,7 +1,14 @@
 package hidingsrc.srcdetection;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
 import hidingsrc.core.Coalition;
+import hidingsrc.core.CompactSubgraph;
 import hidingsrc.core.Graph;
+import hidingsrc.core.OnlineDistances;
 import hidingsrc.epidemic.EpidemicModel;
 
 /**
@@ -23,9 +30,19 @@ import hidingsrc.epidemic.EpidemicModel;
 public class RandomWalkSourceDetection extends ScoringSourceDetectionAlgorithm {
 	
 	private EpidemicModel em;
+	private Map<Integer,double[]> walkRounds;
+	private OnlineDistances distances;
+	private double[] weights;
+	private double[] current;
+	private double[] next;
 	
 	public RandomWalkSourceDetection(EpidemicModel em) {
 		this.em = em;
+		this.walkRounds = null;
+		this.distances = null;
+		this.weights = null;
+		this.current = null;
+		this.next = null;
 	}
 
 	@Override
@@ -33,37 +50,124 @@ public class RandomWalkSourceDetection extends ScoringSourceDetectionAlgorithm {
 		return "RandomWalk";
 	}
 
+	/**
+	 * Propagation runs on the subgraph induced by the active nodes. A node is valid if every active node is within
+	 * the number of diffusion rounds from it in this subgraph, checked with a BFS stopped at that depth (unless
+	 * another algorithm has already found the eccentricity, see CompactSubgraph.reachesAllWithin).
+	 * 
+	 * Note that this is stricter than the original check of distances in the whole graph, and it gives different
+	 * results whenever a shortest path between active nodes leaves them. It rejects only nodes that cannot be
+	 * the source: in SI every infection path consists of infected nodes, so the source reaches every active node
+	 * within the number of rounds without leaving them. It also needs no shortest paths of the whole graph.
+	 * 
+	 * The rounds are computed in two buffers kept between detections, swapped after every round; values of all
+	 * rounds are copied out only for the observed infection.
+	 */
 	@Override
 	protected void recountScores(Coalition active, Graph g) {
-		double[] pts = new double[g.size()];
-		double[] newPts = new double[g.size()];
-		for (int i : active)
-			pts[i] = 1.;
-		for (int t = em.getDiffusionRounds() - 1; t >= 0; --t) {
-			for (int i : active) {
-				newPts[i] = (1. - em.getBasicProbability()) * pts[i];
-				for (int j : g.getPreds(i))
-					if (active.contains(j))
-						newPts[i] += em.getBasicProbability() / g.getOutDegree(i) * pts[j];
+		CompactSubgraph sg = DetectionContext.get(active, g).getCompact();
+		int k = sg.size();
+		int[] offsets = sg.getPredOffsets();
+		int[] targets = sg.getPredTargets();
+		double p = em.getBasicProbability();
+		int rounds = em.getDiffusionRounds();
+		if (current == null || current.length < k) {
+			weights = new double[k];
+			current = new double[k];
+			next = new double[k];
+		}
+		for (int a = 0; a < k; ++a)
+			weights[a] = p / g.getOutDegree(sg.node(a));
+		Arrays.fill(current, 0, k, 1.);
+		double[][] nodeRounds = isObserved(active, g) ? new double[k][rounds + 1] : null;
+		if (nodeRounds != null)
+			for (int a = 0; a < k; ++a)
+				nodeRounds[a][0] = 1.;
+		for (int r = 1; r <= rounds; ++r) {
+			for (int a = 0; a < k; ++a) {
+				double sum = 0.;
+				for (int e = offsets[a]; e < offsets[a + 1]; ++e)
+					sum += current[targets[e]];
+				next[a] = (1. - p) * current[a] + weights[a] * sum;
+				if (nodeRounds != null)
+					nodeRounds[a][r] = next[a];
+			}
+			double[] swap = current;
+			current = next;
+			next = swap;
+		}
+		boolean[] valid = new boolean[k];
+		IntStream.range(0, k).parallel().forEach(a -> valid[a] = sg.reachesAllWithin(a, rounds));
+		walkRounds = nodeRounds != null ? new HashMap<>() : null;
+		for (int i : g.nodes()) {
+			int a = sg.index(i);
+			scores.put(i, a < 0 ? Double.NEGATIVE_INFINITY : valid[a] ? current[a] : 0.);
+			if (a >= 0 && walkRounds != null)
+				walkRounds.put(i, nodeRounds[a]);
+		}
+		distances = null;
+	}
+	
+	/**
+	 * Values of all propagation rounds are kept for the observed infection, so after adding (or removing) node i
+	 * only the values that change are recounted: in round r these are the values of nodes within r hops from i.
+	 * Validity is checked on a matrix of distances among the active nodes (see OnlineDistances), which also limits
+	 * removals to nodes not lying on any path.
+	 */
+	@Override
+	protected boolean updateScores(int i, boolean added, Coalition active, Graph g) {
+		if (walkRounds == null)
+			return false;
+		if (distances == null) {
+			Coalition before = added ? Coalition.diff(active, i) : Coalition.add(active, i);
+			distances = new OnlineDistances(g, DetectionContext.get(before, g).getCompact());
+		}
+		if (added)
+			distances.add(i);
+		else if (distances.isRemovable(i))
+			distances.remove(i);
+		else {
+			distances = null;
+			return false;
+		}
+		int rounds = em.getDiffusionRounds();
+		double p = em.getBasicProbability();
+		Coalition changed = new Coalition();
+		if (added) {
+			double[] nodeRounds = new double[rounds + 1];
+			nodeRounds[0] = 1.;
+			walkRounds.put(i, nodeRounds);
+			changed.add(i);
+		} else {
+			walkRounds.remove(i);
+			scores.put(i, Double.NEGATIVE_INFINITY);
+		}
+		Coalition affected = new Coalition(i);
+		for (int r = 1; r <= rounds; ++r) {
+			Coalition next = new Coalition(changed);
+			for (int j : affected)
+				for (int q : g.getSuccs(j))
+					if (active.contains(q))
+						next.add(q);
+			for (int j : next) {
+				double[] nodeRounds = walkRounds.get(j);
+				double sum = 0.;
+				for (int q : g.getPreds(j))
+					if (active.contains(q))
+						sum += walkRounds.get(q)[r - 1];
+				nodeRounds[r] = (1. - p) * nodeRounds[r - 1] + p / g.getOutDegree(j) * sum;
 			}
-			double[] tmp = pts;
-			pts = newPts;
-			newPts = tmp;
+			affected = next;
+			changed = next;
 		}
-		Coalition valid = new Coalition(active);
-		for (int i : active)
-			if (valid.contains(i))
-				for (int j : active)
-					if (g.sp().getDistance(i, j) > em.getDiffusionRounds()) {
-						valid.remove(i);
-						if (!g.isDirected())
-							valid.remove(j);
-					}
-		for (int i : g.nodes())
-			if (active.contains(i))
-				scores.put(i, valid.contains(i) ? pts[i] : 0.);
-			else
-				scores.put(i, Double.NEGATIVE_INFINITY);
+		for (int j : active)
+			scores.put(j, distances.getEccentricity(j) <= rounds ? walkRounds.get(j)[rounds] : 0.);
+		return true;
+	}
+	
+	@Override
+	protected ScoringSourceDetectionAlgorithm copy() {
+		return new RandomWalkSourceDetection(em);
 	}
 
 	@Override
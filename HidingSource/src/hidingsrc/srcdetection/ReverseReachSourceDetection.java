@@ -0,0 +1,81 @@
+package hidingsrc.srcdetection;
+
+import java.util.SplittableRandom;
+
+import hidingsrc.core.Coalition;
+import hidingsrc.core.Graph;
+import hidingsrc.epidemic.EpidemicModel;
+import hidingsrc.epidemic.ReverseReachableSet;
+
+/**
+ * Source detection algorithm estimating source likelihood with reverse-reachable sets, in the style of
+ * reverse influence sampling. Every sample is a set of infected nodes from which the diffusion would reach
+ * a random infected root through infected nodes only. The score of a candidate is the fraction of samples
+ * that it covers, an estimate of the expected share of the infected set that its diffusion would reach.
+ * Only the infected region of the graph is ever touched.
+ * 
+@inproceedings{borgs2014maximizing,
+  title={Maximizing social influence in nearly optimal time},
+  author={Borgs, Christian and Brautbar, Michael and Chayes, Jennifer and Lucier, Brendan},
+  booktitle={Proceedings of the twenty-fifth annual ACM-SIAM symposium on Discrete algorithms},
+  pages={946--957},
+  year={2014}
+}
+ * 
+ * @author Marcin Waniek
+ */
+public class ReverseReachSourceDetection extends ScoringSourceDetectionAlgorithm {
+
+	public static final int DEF_SAMPLES = 10000;
+	
+	private EpidemicModel em;
+	private int samples;
+	
+	/**
+	 * The model has to support reverse sampling (see EpidemicModel.supportsReverseSampling).
+	 */
+	public ReverseReachSourceDetection(EpidemicModel em, int samples) {
+		if (!em.supportsReverseSampling())
+			throw new IllegalArgumentException(em.getName() + " does not support reverse sampling");
+		this.em = em;
+		this.samples = samples;
+	}
+	
+	public ReverseReachSourceDetection(EpidemicModel em) {
+		this(em, DEF_SAMPLES);
+	}
+
+	@Override
+	public String getName() {
+		return "ReverseReach";
+	}
+
+	@Override
+	protected void recountScores(Coalition active, Graph g) {
+		int[] roots = active.stream().toArray();
+		int[] coverage = new int[g.size()];
+		ReverseReachableSet rrs = new ReverseReachableSet(g.size());
+		SplittableRandom rand = em.getRandom();
+		for (int sample = 0; sample < samples; ++sample) {
+			if (!em.sampleReverseReachable(roots[rand.nextInt(roots.length)], g, active, rrs))
+				throw new IllegalStateException(em.getName() + " failed to sample a reverse-reachable set");
+			for (int k = 0; k < rrs.size(); ++k)
+				++coverage[rrs.get(k)];
+		}
+		for (int i : g.nodes())
+			if (active.contains(i))
+				scores.put(i, (double)coverage[i] / samples);
+			else
+				scores.put(i, Double.NEGATIVE_INFINITY);
+	}
+
+	@Override
+	protected ScoringSourceDetectionAlgorithm copy() {
+		return new ReverseReachSourceDetection(em.copy(), samples);
+	}
+
+	@Override
+	public double computeSingleScore(int i, Coalition active, Graph g, Coalition comparison) {
+		return getScore(i, active, g);
+	}
+}
@@ -1,8 +1,13 @@
 package hidingsrc.srcdetection;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import hidingsrc.core.Coalition;
 import hidingsrc.core.Edge;
@@ -18,19 +23,28 @@ import hidingsrc.utils.Utils;
  */
 public abstract class ScoringSourceDetectionAlgorithm extends SourceDetectionAlgorithm implements GraphChangeListener {
 
+	// Nodes missing from the scores (e.g., never reached by a local algorithm) are scored -inf.
 	protected Map<Integer,Double> scores;
-	private Coalition lastActive;
+	private Coalition lastActiveRef;
+	private long lastActiveVersion;
 	private Graph lastG;
+	private long lastGVersion;
+	private Coalition observed;
+	private Graph observedG;
 	
 	@Override
 	public int detectSource(Coalition active, Graph g) {
 		prepare(active, g);
-		return Utils.argmax(g.nodes(), i -> scores.get(i));
+		return Utils.argmax(g.nodes(), i -> getStoredScore(i));
 	}
 	
 	public double getScore(int i, Coalition active, Graph g) {
 		prepare(active, g);
-		return scores.get(i);
+		return getStoredScore(i);
+	}
+	
+	private double getStoredScore(int i) {
+		return scores.getOrDefault(i, Double.NEGATIVE_INFINITY);
 	}
 
 	/**
@@ -52,6 +66,64 @@ public abstract class ScoringSourceDetectionAlgorithm extends SourceDetectionAlg
 		return getRanking(new Coalition(active), g);
 	}
 	
+	/**
+	 * Scores of all nodes of g (indexed by node) for every infection, computed in parallel. Structures depending
+	 * only on the graph are prepared once (see prepareBatch), and every infection is scored by its own copy of
+	 * the algorithm with its own random stream, split from the stream of the calling thread in the order of
+	 * infections, so the scores do not depend on scheduling. Algorithms that cannot be copied score the infections
+	 * one by one, with the same streams.
+	 * 
+	 * It is meant for sweeps of many infections on a fixed graph; the hiding experiments do not use it, as their
+	 * rankings before hiding are interleaved with per-evader random streams and preprocessing.
+	 */
+	public List<double[]> scoreBatch(List<Coalition> infections, Graph g) {
+		prepareBatch(infections, g);
+		List<SplittableRandom> rands = new ArrayList<>();
+		for (int k = 0; k < infections.size(); ++k)
+			rands.add(Utils.rand().split());
+		boolean parallel = copy() != null;
+		IntStream range = IntStream.range(0, infections.size());
+		return (parallel ? range.parallel() : range).mapToObj(k -> {
+			ScoringSourceDetectionAlgorithm alg = parallel ? copy() : this;
+			SplittableRandom threadRand = Utils.setRandom(rands.get(k));
+			try {
+				return alg.scoreArray(infections.get(k), g);
+			} finally {
+				Utils.setRandom(threadRand);
+				if (parallel) {
+					g.unsubscribe(alg);
+					DetectionContext.clear();
+				}
+			}
+		}).collect(Collectors.toList());
+	}
+	
+	private double[] scoreArray(Coalition active, Graph g) {
+		prepare(active, g);
+		double[] res = new double[g.size()];
+		for (int i : g.nodes())
+			res[i] = getStoredScore(i);
+		return res;
+	}
+	
+	/**
+	 * Prepares structures of graph g shared by all copies scoring a batch of infections.
+	 */
+	protected void prepareBatch(List<Coalition> infections, Graph g) {}
+	
+	/**
+	 * New instance of the same algorithm with the same settings, safe to be used by another thread at the same
+	 * time (after prepareBatch); null if it cannot be copied.
+	 */
+	protected ScoringSourceDetectionAlgorithm copy() {
+		return null;
+	}
+	
+	/**
+	 * Recounts the scores if the graph or the active nodes have changed. Both are recognized in O(1) by the object
+	 * and its version, so a different Coalition object with the same nodes also causes a recount (callers asking
+	 * repeatedly about the same infection should pass the same object).
+	 */
 	protected void prepare(Coalition active, Graph g) {
 		if (g != lastG) {
 			if (lastG != null)
@@ -60,8 +132,13 @@ public abstract class ScoringSourceDetectionAlgorithm extends SourceDetectionAlg
 			lastG = g;
 			scores = null;
 		}
-		if (!active.equals(lastActive)) {
-			lastActive = new Coalition(active);
+		if (g.getVersion() != lastGVersion) {
+			lastGVersion = g.getVersion();
+			scores = null;
+		}
+		if (active != lastActiveRef || active.getVersion() != lastActiveVersion) {
+			lastActiveRef = active;
+			lastActiveVersion = active.getVersion();
 			scores = null;
 		}
 		if (scores == null) {
@@ -72,19 +149,75 @@ public abstract class ScoringSourceDetectionAlgorithm extends SourceDetectionAlg
 	}
 	
 	protected void refreshStructures(Coalition active, Graph g) {}
+	
+	/**
+	 * Starts following an infection in graph g, initially consisting of given active nodes. It can then grow
+	 * and shrink through observe() and retract(), and detectors able to do so update their scores from
+	 * the change (see updateScores) instead of recounting them.
+	 */
+	public void startObserving(Coalition active, Graph g) {
+		this.observed = new Coalition(active);
+		this.observedG = g;
+		prepare(observed, g);
+	}
+	
+	/**
+	 * Currently followed active nodes; they should be changed only through observe() and retract().
+	 */
+	public Coalition getObserved() {
+		return observed;
+	}
+	
+	public void observe(int i) {
+		changeObserved(i, true);
+	}
+	
+	public void retract(int i) {
+		changeObserved(i, false);
+	}
+	
+	public Ranking<Integer> getObservedRanking() {
+		return getRanking(observed, observedG);
+	}
+	
+	/**
+	 * Whether the active nodes in graph g are the followed infection, so that structures needed only to update
+	 * the scores (see updateScores) are worth keeping.
+	 */
+	protected boolean isObserved(Coalition active, Graph g) {
+		return active == observed && g == observedG;
+	}
+	
+	private void changeObserved(int i, boolean added) {
+		if (observed.contains(i) == added)
+			return;
+		boolean upToDate = scores != null && lastG == observedG && lastGVersion == observedG.getVersion()
+				&& lastActiveRef == observed && lastActiveVersion == observed.getVersion();
+		if (added)
+			observed.add(i);
+		else
+			observed.remove(i);
+		if (upToDate && updateScores(i, added, observed, observedG))
+			lastActiveVersion = observed.getVersion();
+	}
+	
+	/**
+	 * Updates the scores after node i was added to the active nodes (or removed from them), given the scores
+	 * were up to date before. Returns false if the detector cannot do it, and then the scores are recounted
+	 * when they are needed next.
+	 */
+	protected boolean updateScores(int i, boolean added, Coalition active, Graph g) {
+		return false;
+	}
+
+	// Changes are recognized through versions of the graph, notifications matter only for subclasses tracking them.
 
 	@Override
-	public void notifyAdd(Graph g, Edge e) {
-		scores = null;
-	}
+	public void notifyAdd(Graph g, Edge e) {}
 
 	@Override
-	public void notifyRemove(Graph g, Edge e) {
-		scores = null;		
-	}
+	public void notifyRemove(Graph g, Edge e) {}
 
 	@Override
-	public void notifyReset(Graph g) {
-		scores = null;
-	}
+	public void notifyReset(Graph g) {}
 }
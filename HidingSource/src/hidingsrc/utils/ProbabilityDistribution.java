@@ -2,6 +2,7 @@ package hidingsrc.utils;
 
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -29,12 +30,20 @@ public class ProbabilityDistribution<T> {
 	}
 	
 	public T draw() {
+		return draw(Utils.rand());
+	}
+	
+	public T draw(SplittableRandom rand) {
 		computeAccIfNotReady();
-		return drawFromAcc(acc);
+		return drawFromAcc(acc, rand);
 	}
 	
 	public T drawFiltered(Predicate<T> filter) {
-		T test = draw();
+		return drawFiltered(filter, Utils.rand());
+	}
+	
+	public T drawFiltered(Predicate<T> filter, SplittableRandom rand) {
+		T test = draw(rand);
 		if (test == null || filter.test(test))
 			return test;
 		double[] a = new double[values.size()];
@@ -46,10 +55,14 @@ public class ProbabilityDistribution<T> {
 			a[i] = acc[i] + deltaAcc;
 			++i;
 		}
-		return drawFromAcc(a);
+		return drawFromAcc(a, rand);
 	}
 	
 	public T drawUpdated(BiFunction<T,Double,Double> update) {
+		return drawUpdated(update, Utils.rand());
+	}
+	
+	public T drawUpdated(BiFunction<T,Double,Double> update, SplittableRandom rand) {
 		computeAccIfNotReady();
 		double[] a = new double[values.size()];
 		int i = 0;
@@ -57,7 +70,7 @@ public class ProbabilityDistribution<T> {
 			a[i] = update.apply(t, acc[i] - (i > 0 ? acc[i-1] : 0.)) + (i > 0 ? a[i-1] : 0.);
 			++i;
 		}
-		return drawFromAcc(a);
+		return drawFromAcc(a, rand);
 	}
 	
 	public void update(T t, double delta) {
@@ -95,10 +108,10 @@ public class ProbabilityDistribution<T> {
 		}
 	}
 	
-	private T drawFromAcc(double[] a) {
+	private T drawFromAcc(double[] a, SplittableRandom rand) {
 		if (a[a.length - 1] <= 0.)
 			return null;
-		double v = Utils.RAND.nextDouble() * a[a.length - 1];
+		double v = rand.nextDouble() * a[a.length - 1];
 		if (v <= a[0])
 			return values.get(0);
 		int l = 0;
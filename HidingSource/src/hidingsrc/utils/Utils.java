@@ -4,9 +4,10 @@ import java.lang.reflect.Array;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,8 +19,73 @@ import java.util.stream.Stream;
  */
 public class Utils {
 
-	public static final Random RAND = new Random();
 	public static final String WHITESPACE = "\\s+";
+	public static final String SEED_PROPERTY = "hidingsrc.seed";
+	
+	private static SplittableRandom root = Long.getLong(SEED_PROPERTY) != null
+			? new SplittableRandom(Long.getLong(SEED_PROPERTY)) : new SplittableRandom();
+	private static volatile long epoch = 0;
+	private static final ThreadLocal<ThreadRandom> current = new ThreadLocal<>();
+	
+	/**
+	 * Random generator of a thread together with the epoch of the root generator it belongs to.
+	 */
+	private static class ThreadRandom {
+		
+		private SplittableRandom rand;
+		private long epoch;
+		
+		public ThreadRandom(SplittableRandom rand, long epoch) {
+			this.rand = rand;
+			this.epoch = epoch;
+		}
+	}
+	
+	/**
+	 * Resets the root random generator, making all streams derived from it afterwards reproducible.
+	 * The generators of all threads, including the ones set with setRandom, become stale and every thread
+	 * splits a new one from the new root on its next call to rand().
+	 * The root seed can also be given with the -Dhidingsrc.seed system property.
+	 */
+	public static synchronized void setSeed(long seed) {
+		root = new SplittableRandom(seed);
+		++epoch;
+	}
+	
+	/**
+	 * New independent random stream derived from the root generator.
+	 */
+	public static synchronized SplittableRandom split() {
+		return root.split();
+	}
+	
+	/**
+	 * Random generator of the current thread, split from the root generator on first use.
+	 */
+	public static SplittableRandom rand() {
+		ThreadRandom res = current.get();
+		if (res == null || res.epoch != epoch) {
+			synchronized (Utils.class) {
+				res = new ThreadRandom(root.split(), epoch);
+			}
+			current.set(res);
+		}
+		return res.rand;
+	}
+	
+	/**
+	 * Sets the random generator used by the current thread, returns the previous one (null if the thread has not
+	 * used any or its generator became stale after setSeed), so that it can be restored.
+	 * Setting null makes the thread split a new generator on its next call to rand().
+	 */
+	public static SplittableRandom setRandom(SplittableRandom rand) {
+		ThreadRandom prev = current.get();
+		if (rand == null)
+			current.remove();
+		else
+			current.set(new ThreadRandom(rand, epoch));
+		return prev != null && prev.epoch == epoch ? prev.rand : null;
+	}
 	
 	/**
 	 * Current time in the yyMMdd-HHmmss format.
@@ -50,7 +116,11 @@ public class Utils {
 	}
 	
 	public static <T> T getRandom(List<T> l) {
-		return l.size() > 0 ? l.get(RAND.nextInt(l.size())) : null;
+		return getRandom(l, rand());
+	}
+	
+	public static <T> T getRandom(List<T> l, SplittableRandom rand) {
+		return l.size() > 0 ? l.get(rand.nextInt(l.size())) : null;
 	}
 	
 	public static <T> T getRandom(Stream<T> s) {
@@ -58,7 +128,19 @@ public class Utils {
 	}
 	
 	public static <T> T getRandom(Stream<T> s, int size) {
-		return s.skip(RAND.nextInt(size)).findFirst().orElse(null);
+		return getRandom(s, size, rand());
+	}
+	
+	public static <T> T getRandom(Stream<T> s, int size, SplittableRandom rand) {
+		return s.skip(rand.nextInt(size)).findFirst().orElse(null);
+	}
+	
+	/**
+	 * Fisher-Yates shuffle of a list.
+	 */
+	public static <T> void shuffle(List<T> l, SplittableRandom rand) {
+		for (int i = l.size() - 1; i > 0; --i)
+			Collections.swap(l, i, rand.nextInt(i + 1));
 	}
 	
 	/**
@@ -97,7 +179,7 @@ public class Utils {
 				resVal = val;
 			} else if (val == resVal){
 				++equalCount;
-				if (RAND.nextDouble() >= (double)equalCount/(equalCount + 1)){
+				if (rand().nextDouble() >= (double)equalCount/(equalCount + 1)){
 					res = elem;
 					resVal = val;
 				}